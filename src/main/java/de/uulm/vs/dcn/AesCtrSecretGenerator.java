@@ -0,0 +1,104 @@
+package de.uulm.vs.dcn;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A {@link SharedSecretGenerator} producing the AES-128 key stream in counter
+ * mode. The JVM uses the AES instructions of the CPU for this where available.
+ * <p>
+ * Seekable: the bytes of a round are the key stream starting at the counter
+ * block whose upper half is that of the initial counter block XOR the round
+ * index, and whose lower half is 0. Rounds therefore never share counter
+ * blocks unless a round is longer than 2^68 bytes.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class AesCtrSecretGenerator implements SharedSecretGenerator {
+  private static final int KEY_LENGTH = 16;
+
+  private static final int BLOCK_LENGTH = 16;
+
+  /**
+   * Used for {@link AesCtrSecretGenerator#roundBytes}, which may be called
+   * concurrently.
+   */
+  private static final ThreadLocal<Seek> SEEK =
+      ThreadLocal.withInitial(Seek::new);
+
+  private final Cipher cipher;
+  private final SecretKeySpec key;
+  private final byte[] initialCounter;
+
+  /**
+   * 
+   * @param seed The first 16 bytes are used as key, the next 16 bytes as
+   *             initial counter block.
+   */
+  public AesCtrSecretGenerator(byte[] seed) {
+    key = new SecretKeySpec(seed, 0, KEY_LENGTH, "AES");
+    initialCounter =
+        Arrays.copyOfRange(seed, KEY_LENGTH, KEY_LENGTH + BLOCK_LENGTH);
+    cipher = newCipher();
+    try {
+      cipher.init(Cipher.ENCRYPT_MODE, key,
+          new IvParameterSpec(initialCounter));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("AES/CTR is not available", e);
+    }
+  }
+
+  private static Cipher newCipher() {
+    try {
+      return Cipher.getInstance("AES/CTR/NoPadding");
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("AES/CTR is not available", e);
+    }
+  }
+
+  @Override
+  public void nextBytes(byte[] dst, int off, int len) {
+    try {
+      Util.keyStream(cipher, dst, off, len);
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public boolean isSeekable() {
+    return true;
+  }
+
+  @Override
+  public void roundBytes(long round, byte[] dst, int off, int len) {
+    var seek = SEEK.get();
+    for (var i = 0; i < Long.BYTES; i++) {
+      seek.counter[i] =
+          (byte) (initialCounter[i] ^ (round >>> (8 * (Long.BYTES - 1 - i))));
+    }
+    try {
+      // copies the counter
+      seek.cipher.init(Cipher.ENCRYPT_MODE, key,
+          new IvParameterSpec(seek.counter));
+      Util.keyStream(seek.cipher, dst, off, len);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The cipher {@link AesCtrSecretGenerator#roundBytes} uses on one thread,
+   * with a buffer for the initial counter block. Its lower half stays 0.
+   */
+  private static final class Seek {
+    final Cipher cipher = newCipher();
+    final byte[] counter = new byte[BLOCK_LENGTH];
+  }
+}
@@ -0,0 +1,43 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * A {@link RoundSynchronizer} based on {@link CyclicBarrier}s. The barrier
+ * ending a round decides whether to stop in its barrier action, which runs
+ * before any member is released.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class BarrierSynchronizer implements RoundSynchronizer {
+  private final CyclicBarrier phaseBarrier;
+  private final CyclicBarrier roundBarrier;
+
+  private volatile boolean terminateRequested;
+  private volatile boolean terminated;
+
+  public BarrierSynchronizer(int parties) {
+    this.phaseBarrier = new CyclicBarrier(parties);
+    this.roundBarrier =
+        new CyclicBarrier(parties, () -> terminated = terminateRequested);
+  }
+
+  @Override
+  public void awaitPhase() throws InterruptedException, BrokenBarrierException {
+    phaseBarrier.await();
+  }
+
+  @Override
+  public boolean awaitRound()
+      throws InterruptedException, BrokenBarrierException {
+    roundBarrier.await();
+    return !terminated;
+  }
+
+  @Override
+  public void terminate() {
+    terminateRequested = true;
+  }
+}
@@ -0,0 +1,261 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue of primitive bytes for exactly one consuming thread. Bytes
+ * are written and read in bulk, so no per-byte objects are created.
+ * <p>
+ * The backing array starts small and is doubled by the producer whenever a
+ * write does not fit, up to the maximum capacity. The consumer never takes a
+ * lock: positions are absolute and only ever grow, and an array that has been
+ * replaced is never written to again, so a consumer still reading from an old
+ * array always sees valid data. Producer calls are serialised internally, so
+ * several threads may enqueue concurrently.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class ByteRingBuffer {
+  private static final int MIN_CAPACITY = 64;
+
+  private final int maxCapacity;
+
+  /**
+   * Serialises producers and is used for blocking until space is available.
+   */
+  private final ReentrantLock producerLock = new ReentrantLock();
+  private final Condition notFull = producerLock.newCondition();
+
+  private volatile byte[] buffer;
+
+  /**
+   * Absolute position of the next byte to read. Only written by the consumer.
+   */
+  private volatile long head;
+
+  /**
+   * Absolute position of the next byte to write. Only written by producers.
+   */
+  private volatile long tail;
+
+  /**
+   * Set by a producer before it blocks, so that the consumer knows it has to
+   * signal after freeing space.
+   */
+  private volatile boolean producerWaiting;
+
+  /**
+   *
+   * @param initialCapacity The number of bytes the buffer can hold before it
+   *                        has to grow.
+   * @param maxCapacity     The maximum number of bytes the buffer may hold.
+   *                        Both capacities are rounded up to a power of two.
+   */
+  public ByteRingBuffer(int initialCapacity, int maxCapacity) {
+    if (initialCapacity < 0 || maxCapacity < 1
+        || maxCapacity > 1 << 30) {
+      throw new IllegalArgumentException("Invalid capacity.");
+    }
+    this.maxCapacity = ceilPow2(maxCapacity);
+    this.buffer =
+        new byte[Math.min(this.maxCapacity,
+            ceilPow2(Math.max(initialCapacity, MIN_CAPACITY)))];
+  }
+
+  /**
+   * @return The number of bytes currently queued.
+   */
+  public int size() {
+    // read head first, so that size is never negative
+    var h = head;
+    return (int) (tail - h);
+  }
+
+  public boolean isEmpty() {
+    return head == tail;
+  }
+
+  /**
+   * @return The number of bytes enqueued since construction.
+   */
+  public long enqueued() {
+    return tail;
+  }
+
+  /**
+   * @return The number of bytes dequeued since construction.
+   */
+  public long dequeued() {
+    return head;
+  }
+
+  /**
+   * @return The number of bytes the buffer can hold without growing.
+   */
+  public int capacity() {
+    return buffer.length;
+  }
+
+  public int maxCapacity() {
+    return maxCapacity;
+  }
+
+  /**
+   * Enqueues the specified bytes, growing the buffer if necessary. Either all
+   * bytes are enqueued or none.
+   *
+   * @return True if the bytes were enqueued, false if there is not enough
+   *         space left, even at maximum capacity.
+   */
+  public boolean offer(byte[] src, int off, int len) {
+    checkRange(src, off, len);
+    producerLock.lock();
+    try {
+      if (!ensureFree(len)) {
+        return false;
+      }
+      write(src, off, len);
+      return true;
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  /**
+   * Enqueues the specified bytes, growing the buffer if necessary and waiting
+   * for the consumer to free space once the maximum capacity is reached. If the
+   * message is larger than the maximum capacity it is enqueued in pieces.
+   *
+   * @throws InterruptedException If interrupted while waiting. Bytes enqueued
+   *                              before the interruption stay enqueued.
+   */
+  public void put(byte[] src, int off, int len) throws InterruptedException {
+    checkRange(src, off, len);
+    producerLock.lockInterruptibly();
+    try {
+      while (len > 0) {
+        // grow as far as needed, but at most up to the maximum capacity
+        ensureFree(Math.min(len, maxCapacity - size()));
+        var chunk = Math.min(len, free());
+        if (chunk == 0) {
+          producerWaiting = true;
+          try {
+            // re-check after announcing that we wait, the consumer may have
+            // freed space in the meantime without signalling
+            while (free() == 0) {
+              notFull.await();
+            }
+          } finally {
+            producerWaiting = false;
+          }
+          continue;
+        }
+        write(src, off, chunk);
+        off += chunk;
+        len -= chunk;
+      }
+    } finally {
+      producerLock.unlock();
+    }
+  }
+
+  /**
+   * Dequeues up to {@code len} bytes into the specified array. Must only be
+   * called by the consuming thread.
+   *
+   * @return The number of bytes dequeued.
+   */
+  public int drain(byte[] dst, int off, int len) {
+    checkRange(dst, off, len);
+    var h = head;
+    var count = (int) Math.min(len, tail - h);
+    if (count == 0) {
+      return 0;
+    }
+    // tail has been read, so the buffer holding the bytes up to tail is
+    // visible
+    var buf = buffer;
+    var mask = buf.length - 1;
+    var start = (int) (h & mask);
+    var first = Math.min(count, buf.length - start);
+    System.arraycopy(buf, start, dst, off, first);
+    System.arraycopy(buf, 0, dst, off + first, count - first);
+    head = h + count;
+
+    if (producerWaiting) {
+      producerLock.lock();
+      try {
+        notFull.signalAll();
+      } finally {
+        producerLock.unlock();
+      }
+    }
+    return count;
+  }
+
+  private int free() {
+    return buffer.length - size();
+  }
+
+  /**
+   * Grows the buffer until {@code len} bytes fit. Must hold the producer lock.
+   *
+   * @return False if the bytes do not fit even at maximum capacity.
+   */
+  private boolean ensureFree(int len) {
+    var used = size();
+    if ((long) used + len > maxCapacity) {
+      return false;
+    }
+    var old = buffer;
+    if (used + len <= old.length) {
+      return true;
+    }
+
+    var grown = new byte[Math.min(maxCapacity, ceilPow2(used + len))];
+    // copy everything from the current head on. The consumer may advance head
+    // concurrently, copying a few already consumed bytes is harmless.
+    var h = head;
+    var t = tail;
+    for (var pos = h; pos < t;) {
+      var from = (int) (pos & (old.length - 1));
+      var to = (int) (pos & (grown.length - 1));
+      var chunk =
+          (int) Math.min(t - pos,
+              Math.min(old.length - from, grown.length - to));
+      System.arraycopy(old, from, grown, to, chunk);
+      pos += chunk;
+    }
+    buffer = grown;
+    return true;
+  }
+
+  /**
+   * Copies the bytes into the buffer and publishes them. Must hold the
+   * producer lock and there must be enough free space.
+   */
+  private void write(byte[] src, int off, int len) {
+    var buf = buffer;
+    var t = tail;
+    var mask = buf.length - 1;
+    var start = (int) (t & mask);
+    var first = Math.min(len, buf.length - start);
+    System.arraycopy(src, off, buf, start, first);
+    System.arraycopy(src, off + first, buf, 0, len - first);
+    tail = t + len;
+  }
+
+  private static void checkRange(byte[] array, int off, int len) {
+    if (off < 0 || len < 0 || off + len > array.length) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + off + ", " + (off + len) + ") out of bounds for length "
+              + array.length);
+    }
+  }
+
+  private static int ceilPow2(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+}
@@ -0,0 +1,133 @@
+package de.uulm.vs.dcn;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.ChaCha20ParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A {@link SharedSecretGenerator} producing the ChaCha20 key stream.
+ * <p>
+ * Seekable: the bytes of a round are the key stream under a nonce holding the
+ * round index. The sequential stream uses the nonce 0, the nonces of rounds
+ * are marked by their first byte, so the streams never overlap.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class ChaCha20SecretGenerator implements SharedSecretGenerator {
+  private static final int NONCE_LENGTH = 12;
+
+  /**
+   * Parameters with a nonce neither the rounds nor the sequential stream use.
+   */
+  private static final ChaCha20ParameterSpec RESET;
+
+  static {
+    var nonce = new byte[NONCE_LENGTH];
+    nonce[0] = 2;
+    RESET = new ChaCha20ParameterSpec(nonce, 0);
+  }
+
+  /**
+   * Used for {@link ChaCha20SecretGenerator#roundBytes}, which may be called
+   * concurrently.
+   */
+  private static final ThreadLocal<Seek> SEEK =
+      ThreadLocal.withInitial(Seek::new);
+
+  private final Cipher cipher;
+  private final SecretKeySpec key;
+  private final byte[] keyBytes;
+
+  /**
+   * 
+   * @param seed All 32 bytes are used as key, the nonce is fixed. This is fine
+   *             as long as every seed is only used for a single generator.
+   */
+  public ChaCha20SecretGenerator(byte[] seed) {
+    key = new SecretKeySpec(seed, "ChaCha20");
+    keyBytes = seed.clone();
+    cipher = newCipher();
+    try {
+      cipher.init(Cipher.ENCRYPT_MODE, key,
+          new ChaCha20ParameterSpec(new byte[NONCE_LENGTH], 0));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("ChaCha20 is not available", e);
+    }
+  }
+
+  private static Cipher newCipher() {
+    try {
+      return Cipher.getInstance("ChaCha20");
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("ChaCha20 is not available", e);
+    }
+  }
+
+  @Override
+  public void nextBytes(byte[] dst, int off, int len) {
+    try {
+      Util.keyStream(cipher, dst, off, len);
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public boolean isSeekable() {
+    return true;
+  }
+
+  @Override
+  public void roundBytes(long round, byte[] dst, int off, int len) {
+    var seek = SEEK.get();
+    try {
+      if (seek.params == null || seek.round != round) {
+        seek.setRound(round);
+      } else if (Arrays.equals(seek.lastKey, keyBytes)) {
+        // the JDK refuses to initialise a cipher with the key and nonce of its
+        // previous initialisation, as happens if both partners compute the
+        // same round on the same thread
+        seek.cipher.init(Cipher.ENCRYPT_MODE, key, RESET);
+      }
+      seek.cipher.init(Cipher.ENCRYPT_MODE, key, seek.params);
+      seek.lastKey = keyBytes;
+      Util.keyStream(seek.cipher, dst, off, len);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * The cipher {@link ChaCha20SecretGenerator#roundBytes} uses on one thread.
+   * All generators of a member compute the same round one after another, so
+   * the parameters of the last round are kept for them.
+   */
+  private static final class Seek {
+    final Cipher cipher = newCipher();
+    final byte[] nonce = new byte[NONCE_LENGTH];
+    long round;
+    ChaCha20ParameterSpec params;
+    /**
+     * The key of the generator which last initialised the cipher.
+     */
+    byte[] lastKey;
+
+    Seek() {
+      nonce[0] = 1;
+    }
+
+    void setRound(long round) {
+      for (var i = 0; i < Long.BYTES; i++) {
+        nonce[NONCE_LENGTH - 1 - i] = (byte) (round >>> (8 * i));
+      }
+      // copies the nonce
+      params = new ChaCha20ParameterSpec(nonce, 0);
+      this.round = round;
+    }
+  }
+}
@@ -2,28 +2,25 @@ package de.uulm.vs.dcn;
 
 import static java.util.Objects.requireNonNull;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.security.KeyPair;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.Random;
 import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.stream.Collectors;
-
-import de.uulm.vs.dcn.DCNetwork.State;
 
 /**
  * 
@@ -37,6 +34,79 @@ public class Cryptographer implements Runnable {
   public static int BYTES_PER_ROUND = 32;
   public static final Charset CHARSET = Charset.forName("US-ASCII");
 
+  /**
+   * The maximum number of bytes that can be queued for sending. Applies to
+   * cryptographers constructed afterwards.
+   */
+  public static int SEND_QUEUE_CAPACITY = 1 << 30;
+
+  /**
+   * The kernel used for all XOR operations of the protocol.
+   */
+  public static XorKernel XOR_KERNEL = XorKernel.select();
+
+  /**
+   * The kind of generator used for shared secrets established afterwards.
+   */
+  public static SharedSecretGenerator.Kind SECRET_GENERATOR =
+      SharedSecretGenerator.Kind.RANDOM;
+
+  /**
+   * How the seeds of shared secrets are agreed on by networks started
+   * afterwards.
+   */
+  public static KeyExchange.Kind KEY_EXCHANGE = KeyExchange.Kind.RANDOM;
+
+  /**
+   * How many rounds ahead shared secrets are computed on a background thread.
+   * 0 computes them synchronously at the start of each round.
+   */
+  public static int PREFETCH_ROUNDS = 0;
+
+  /**
+   * Whether members XOR their parts straight into a single buffer of the
+   * recipient instead of one buffer per sender, which makes the fold of the
+   * second phase unnecessary at the cost of atomic writes. The parts are then
+   * also split and hidden one recipient at a time, see
+   * {@link SplitCombineStrategy#split(byte[], byte[], ObjIntConsumer)}, so a
+   * member holds a few buffers of the part length instead of one per member:
+   * the network needs O(n) instead of O(n^2) buffers. Not so with
+   * {@link Cryptographer#PARALLEL_ROUNDS}, whose batches hold all parts of
+   * their rounds. Applies to networks started afterwards.
+   */
+  public static boolean ACCUMULATE = false;
+
+  /**
+   * Whether the accumulators of {@link Cryptographer#ACCUMULATE} are allocated
+   * outside the heap, once per member of a network started afterwards. Needs
+   * JDK 22, or JDK 21 with {@code --enable-preview}. Implies
+   * {@link Cryptographer#ACCUMULATE}.
+   */
+  public static boolean OFF_HEAP = false;
+
+  /**
+   * Whether the members of networks started afterwards pipeline their rounds:
+   * the parts of the next round are sent while those of the current round are
+   * still in flight, i.e. during {@link Cryptographer#DELAY}, and while the
+   * current round is reassembled. The buffers receiving parts and our part of
+   * the message are doubled, one for each of the two rounds in progress.
+   */
+  public static boolean PIPELINE = false;
+
+  /**
+   * How many rounds a member of a network started afterwards takes from its
+   * send queue at once, if it holds bytes for that many, and computes in
+   * parallel on the common fork/join pool. 0 disables it.
+   * <p>
+   * Rounds can only be computed out of order if their shared secrets do not
+   * depend on the previous rounds. If set, all shared secrets are therefore
+   * derived from the index of the round, see
+   * {@link SharedSecretGenerator#roundBytes}, which requires a seekable
+   * {@link Cryptographer#SECRET_GENERATOR}. {@link Cryptographer#PREFETCH_ROUNDS}
+   * is ignored.
+   */
+  public static int PARALLEL_ROUNDS = 0;
+
   private static final Consumer<byte[]> DEFAULT_MSG_PART_HANDLER = __ -> {};
   private static final Logger LOGGER =
       Logger.getLogger(Cryptographer.class.getName());
@@ -55,45 +125,195 @@ public class Cryptographer implements Runnable {
   private final int number;
 
   /**
-   * The RNGs shared with each other cryptographer, in order to generate shared
-   * secrets without having to communicate.
+   * Our index in the members of the network. Equals the number - 1 unless
+   * members left the running network. Our parts are the values at position +
+   * 1.
+   */
+  private int position;
+
+  /**
+   * The RNGs shared with the cryptographers we share a secret with, in order to
+   * generate shared secrets without having to communicate. The first
+   * {@link Cryptographer#generatorCount} entries are used, in the order the
+   * secrets were agreed on. Trimmed to that length when preparing.
+   */
+  private SharedSecretGenerator[] generators = new SharedSecretGenerator[0];
+  private int generatorCount;
+
+  /**
+   * The cryptographer each of the {@link Cryptographer#generators} is shared
+   * with.
+   */
+  private Cryptographer[] secretPartners = new Cryptographer[0];
+
+  /**
+   * Our key pair for agreeing on the seeds of the
+   * {@link Cryptographer#generators}, null until needed.
+   */
+  private KeyPair keyPair;
+
+  /**
+   * All members of the network, indexed by their position. Set when the
+   * network is started.
+   */
+  private Cryptographer[] members;
+
+  /**
+   * Whether our rounds are pipelined, see {@link Cryptographer#PIPELINE}.
+   */
+  private boolean pipelined;
+
+  /**
+   * The number of rounds we have started to send and have reassembled since
+   * we were prepared. The buffers of a round are selected by
+   * {@link Cryptographer#slot(long)}.
+   */
+  private long sentRounds;
+  private long reassembledRounds;
+
+  /**
+   * The index of the first round since we were prepared, counted from the
+   * start of the network. Keys the shared secrets of a round if
+   * {@link Cryptographer#PARALLEL_ROUNDS} is set.
+   */
+  private long firstRound;
+
+  /**
+   * The rounds taken from the send queue ahead of time, null unless
+   * {@link Cryptographer#PARALLEL_ROUNDS} is set.
    */
-  private final Map<Cryptographer, Random> generators = new HashMap<>();
+  private RoundBatch batch;
 
   /**
-   * The messages others have sent to us in the current round. Must be reset
-   * after each round.
+   * The number of bytes in {@link Cryptographer#batch} that have been dequeued
+   * but not yet handed to a round. Guarded by
+   * {@link Cryptographer#drainLock}.
    */
-  private final Map<Cryptographer, byte[]> currentMessages = new HashMap<>();
+  private long batchedBytes;
+
+  /**
+   * The messages others have sent to us, indexed by slot and by the sender's
+   * position. Must be reset after each round.
+   */
+  private byte[][][] inboxes;
+
+  /**
+   * Replace {@link Cryptographer#inboxes} if {@link Cryptographer#ACCUMULATE}
+   * is set: all members XOR their parts into the accumulator of the slot. Null
+   * otherwise.
+   */
+  private XorAccumulator[] accumulators;
+
+  /**
+   * Receives one shared secret at a time, which is XORed into the sum right
+   * away. Used by the thread computing {@link Cryptographer#secretSum}.
+   */
+  private byte[] sharedSecret;
+
+  /**
+   * The XOR of all shared secrets of the current round.
+   */
+  private byte[] secretSum;
+
+  /**
+   * Computes {@link Cryptographer#secretSum} ahead of time, null if it is
+   * computed at the start of each round.
+   */
+  private SecretPrefetcher prefetcher;
+
+  /**
+   * The message parts we send to each member in the current round, indexed by
+   * the recipient's position. Null if {@link Cryptographer#ACCUMULATE} is set
+   * and the parts are split one recipient at a time into
+   * {@link Cryptographer#partToSend}.
+   */
+  private byte[][] toSend;
+  private byte[] partToSend;
+  private final ObjIntConsumer<byte[]> partSender = this::sendPart;
+
+  /**
+   * The bytes we send in the current round, before splitting.
+   */
+  private byte[] originalMessage;
 
   /**
    * The next bytes that we want to send.
    */
-  private final Queue<Byte> queuedMessages = new ConcurrentLinkedQueue<>();
+  private final ByteRingBuffer queuedMessages =
+      new ByteRingBuffer(BYTES_PER_ROUND, SEND_QUEUE_CAPACITY);
+
+  /**
+   * Guards {@link Cryptographer#drained}, {@link Cryptographer#drainTarget}
+   * and {@link Cryptographer#activeEnqueues}.
+   */
+  private final ReentrantLock drainLock = new ReentrantLock();
+
+  /**
+   * Completed once every byte enqueued so far has been handed to a round.
+   */
+  private CompletableFuture<Void> drained =
+      CompletableFuture.completedFuture(null);
+
+  /**
+   * The number of bytes that have to be dequeued to complete
+   * {@link Cryptographer#drained}.
+   */
+  private long drainTarget;
+
+  /**
+   * The number of enqueue operations in progress.
+   */
+  private int activeEnqueues;
+
+  /**
+   * Called by the network after each round we took part in, may be null.
+   */
+  private Runnable roundListener;
 
   /**
    * The strategy we use to split messages and combine them again. This enables
    * threshold cyrptography.
    */
-  private final SplitCombineStrategy splitCombineStrategy;
+  private SplitCombineStrategy splitCombineStrategy;
 
   /**
    * Used to synchronise the cryptographers after each phase of the protocol.
+   * Provided by the {@link DCNetwork} when it is started. When it tells us
+   * that the network has been stopped, we jump out of
+   * {@link Cryptographer#run()} and terminate.
    */
-  private final CyclicBarrier barrier;
+  private RoundSynchronizer synchronizer;
+
+  public static int DELAY = 0;
+
+  private final Collection<Cryptographer> msgSharingPartners = new HashSet<>();
+  private Cryptographer[] sharingPartners;
 
   /**
-   * Semaphore used to synchronise access to the critical part of the
-   * application, where {@link Cryptographer#nwState} is read. This is because
-   * the network must not change the state of the network, when some
-   * cryptographers have already read it and some don't.
+   * Our part of the message of a round, the XOR of all parts sent to us,
+   * indexed by slot. Read by our sharing partners when reassembling.
    */
-  private final Semaphore stateTestSem;
+  private byte[][] messageParts;
 
-  public static int DELAY = 0;
+  /**
+   * The length of the message parts of a round. Equals
+   * {@link Cryptographer#BYTES_PER_ROUND} unless the
+   * {@link SplitCombineStrategy} packs several bytes into each part byte.
+   */
+  private int partLength = BYTES_PER_ROUND;
 
-  private final Collection<Cryptographer> msgSharingPartners = new HashSet<>();
-  private final byte[] lastMessagePart = new byte[BYTES_PER_ROUND];
+  /**
+   * The numbers of our sharing partners and their parts of the current round,
+   * passed to the {@link SplitCombineStrategy} when reassembling.
+   */
+  private int[] partnerPoints;
+  private byte[][] partnerParts;
+
+  /**
+   * The message reassembled in the last round, and a read-only view of it.
+   */
+  private byte[] reassembled;
+  private ByteBuffer reassembledView;
 
   /**
    * Gets called after each round, when we received
@@ -102,29 +322,195 @@ public class Cryptographer implements Runnable {
   private Consumer<byte[]> onMessagePartReceived = DEFAULT_MSG_PART_HANDLER;
 
   /**
-   * The state of the network. This must be managed by a {@link DCNetwork}. When
-   * the state becomes {@link State#TERMINATED} we jump out of
-   * {@link Cryptographer#run()} and terminate.
+   * Like {@link Cryptographer#onMessagePartReceived}, but gets a view of our
+   * buffer instead of a copy. May be null.
    */
-  private AtomicReference<State> nwState;
+  private Consumer<ByteBuffer> onMessagePartView;
 
-  public Cryptographer(int number, SplitCombineStrategy splitCombineStrategy,
-      CyclicBarrier barrier, Semaphore stateTestSem) {
+  public Cryptographer(int number, SplitCombineStrategy splitCombineStrategy) {
     requireNonNull(splitCombineStrategy, "splitCombineStrategy can't be null");
-    requireNonNull(barrier, "barrier can't be null");
-    requireNonNull(stateTestSem, "stateTestSem can't be null");
 
     this.number = number;
     this.splitCombineStrategy = splitCombineStrategy;
-    this.barrier = barrier;
-    this.stateTestSem = stateTestSem;
 
-    this.currentMessages.put(this, new byte[BYTES_PER_ROUND]);
     this.msgSharingPartners.add(this);
   }
 
-  void setNwState(AtomicReference<State> nwState) {
-    this.nwState = nwState;
+  /**
+   * Kept for compatibility. The members of a network are synchronised by the
+   * network's {@link RoundSynchronizer}, so {@code barrier} and
+   * {@code stateTestSem} are ignored.
+   */
+  public Cryptographer(int number, SplitCombineStrategy splitCombineStrategy,
+      CyclicBarrier barrier, Semaphore stateTestSem) {
+    this(number, splitCombineStrategy);
+  }
+
+  /**
+   * Allocates all buffers needed for executing the protocol, so that no
+   * allocations are necessary while running. Must be called after all shared
+   * secrets and sharing partners have been established.
+   * 
+   * @param members      All members of the network, indexed by their
+   *                     position.
+   * @param synchronizer  The synchroniser shared by all members.
+   * @param threadFactory Creates background threads, if any are needed.
+   */
+  void prepare(Cryptographer[] members, RoundSynchronizer synchronizer,
+      ThreadFactory threadFactory) {
+    this.members = members;
+    this.synchronizer = synchronizer;
+    // the parts and the secrets hiding them may be shorter than the message
+    this.partLength = splitCombineStrategy.partLength(BYTES_PER_ROUND);
+    this.generators = Arrays.copyOf(generators, generatorCount);
+    this.secretPartners = Arrays.copyOf(secretPartners, generatorCount);
+    this.sharedSecret = new byte[partLength];
+    this.pipelined = PIPELINE;
+    this.sentRounds = 0;
+    this.reassembledRounds = 0;
+    var slots = pipelined ? 2 : 1;
+    this.messageParts = new byte[slots][];
+    if (ACCUMULATE || OFF_HEAP) {
+      this.inboxes = null;
+      this.accumulators = new XorAccumulator[slots];
+      for (var slot = 0; slot < slots; slot++) {
+        accumulators[slot] = XorAccumulator.create(partLength, OFF_HEAP);
+        messageParts[slot] = accumulators[slot].newBuffer();
+      }
+    } else {
+      this.inboxes = new byte[slots][members.length][partLength];
+      this.accumulators = null;
+      for (var slot = 0; slot < slots; slot++) {
+        messageParts[slot] = new byte[partLength];
+      }
+    }
+    if (accumulators != null && PARALLEL_ROUNDS == 0) {
+      this.toSend = null;
+      this.partToSend = new byte[partLength];
+    } else {
+      this.toSend = new byte[members.length][partLength];
+      this.partToSend = null;
+    }
+    this.secretSum = new byte[partLength];
+    this.originalMessage = new byte[BYTES_PER_ROUND];
+    this.sharingPartners =
+        msgSharingPartners.toArray(new Cryptographer[0]);
+    this.partnerPoints = new int[sharingPartners.length];
+    this.partnerParts = new byte[sharingPartners.length][];
+    for (var i = 0; i < sharingPartners.length; i++) {
+      partnerPoints[i] = sharingPartners[i].position + 1;
+    }
+    this.reassembled = new byte[BYTES_PER_ROUND];
+    this.reassembledView = ByteBuffer.wrap(reassembled).asReadOnlyBuffer();
+    if (PARALLEL_ROUNDS > 0) {
+      for (var generator : generators) {
+        if (!generator.isSeekable()) {
+          throw new IllegalStateException(
+              "Parallel rounds require a seekable shared secret generator.");
+        }
+      }
+      // rounds that have been taken before the members changed are kept
+      if (batch == null || batch.isEmpty()
+          && (batch.capacity() != PARALLEL_ROUNDS
+              || batch.messageLength() != BYTES_PER_ROUND)) {
+        this.batch = new RoundBatch(PARALLEL_ROUNDS, BYTES_PER_ROUND);
+      }
+      batch.reshape(members.length, partLength);
+    } else if (PREFETCH_ROUNDS > 0) {
+      this.prefetcher =
+          new SecretPrefetcher(PREFETCH_ROUNDS, partLength,
+              this::generateSecretSum, threadFactory);
+      this.prefetcher.start();
+    }
+  }
+
+  /**
+   * Sets the index of the next round, counted from the start of the network.
+   * Must be the same for all members.
+   */
+  void setFirstRound(long firstRound) {
+    this.firstRound = firstRound;
+  }
+
+  /**
+   * Sets an action to run after every round this cryptographer took part in,
+   * once all members have finished the round.
+   */
+  void setRoundListener(Runnable roundListener) {
+    this.roundListener = roundListener;
+  }
+
+  /**
+   * Releases resources acquired by {@link Cryptographer#prepare}. Must be
+   * called after the protocol has stopped.
+   */
+  void release() {
+    if (prefetcher != null) {
+      prefetcher.stop();
+      prefetcher = null;
+    }
+  }
+
+  /**
+   * Sets our index in the members of the network. Must be called for all
+   * members before any of them is prepared.
+   */
+  void setPosition(int position) {
+    this.position = position;
+  }
+
+  /**
+   * @return Whether our rounds are pipelined, valid once the network has been
+   *         started.
+   */
+  boolean isPipelined() {
+    return pipelined;
+  }
+
+  /**
+   * @return The index of the buffers used by the specified round.
+   */
+  private int slot(long round) {
+    return pipelined ? (int) (round & 1) : 0;
+  }
+
+  /**
+   * @return Whether shared secrets are computed by a background thread, ahead
+   *         of the rounds.
+   */
+  boolean isPrefetching() {
+    return prefetcher != null;
+  }
+
+  SplitCombineStrategy getSplitCombineStrategy() {
+    return splitCombineStrategy;
+  }
+
+  /**
+   * Replaces the strategy, when the number of members changed. Takes effect
+   * when we are prepared again.
+   */
+  void setSplitCombineStrategy(SplitCombineStrategy splitCombineStrategy) {
+    this.splitCombineStrategy =
+        requireNonNull(splitCombineStrategy,
+            "splitCombineStrategy can't be null");
+  }
+
+  /**
+   * Removes all sharing partners but ourselves, so that they can be assigned
+   * anew.
+   */
+  void clearSharingPartners() {
+    msgSharingPartners.clear();
+    msgSharingPartners.add(this);
+  }
+
+  /**
+   * @return The length of the message parts sent per round, valid once the
+   *         network has been started.
+   */
+  int getPartLength() {
+    return partLength;
   }
 
   public int getNumber() {
@@ -135,94 +521,279 @@ public class Cryptographer implements Runnable {
     return !queuedMessages.isEmpty();
   }
 
+  /**
+   * Returns a future which is completed once every byte enqueued until now has
+   * been handed to a round of the protocol. The future is completed by the
+   * thread executing the protocol, so dependent actions should be quick or
+   * asynchronous.
+   */
+  public CompletableFuture<Void> whenDrained() {
+    drainLock.lock();
+    try {
+      return drained;
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
   public void setOnMessagePartReceived(Consumer<byte[]> consumer) {
     requireNonNull(consumer, "onMessagePartReceived can't be null");
     this.onMessagePartReceived = consumer;
   }
 
+  /**
+   * Like {@link Cryptographer#setOnMessagePartReceived}, but the consumer gets
+   * a read-only view of the reassembled bytes instead of a copy, so no memory
+   * is allocated per round. The view is only valid until the consumer returns.
+   * If both consumers are set, both are called.
+   *
+   * @param consumer The consumer, or null to remove it.
+   */
+  public void setOnMessagePartView(Consumer<ByteBuffer> consumer) {
+    this.onMessagePartView = consumer;
+  }
+
   public void executeProtocolRound1() throws InterruptedException {
-    // we acquire the next message to send from queuedMessages.
-    // if there are no or less than BYTES_PER_ROUND bytes to send,
-    // we leave the remaining bytes as 0s.
-    final var originalMessage = new byte[BYTES_PER_ROUND];
+    sendMessageParts();
 
-    for (var i = 0; i < BYTES_PER_ROUND && pendingToSend(); i++) {
-      originalMessage[i] = queuedMessages.poll();
+    // sync point
+    try {
+      synchronizer.awaitPhase();
+    } catch (BrokenBarrierException e) {
+      LOGGER.severe(e.getMessage());
+      e.printStackTrace();
     }
+  }
 
-    // We split the message, this enables threshold cryptography.
-    final var msgParts = splitCombineStrategy.split(originalMessage);
+  /**
+   * The first phase of a round: splits the next bytes to send, hides the parts
+   * with the shared secrets and hands them to all members.
+   */
+  void sendMessageParts() throws InterruptedException {
+    prepareMessageParts();
+    sendMessageParts(0, partLength);
+  }
 
-    // we move the message parts from msgParts into toSend for easier handling
-    final var toSend = new HashMap<Cryptographer, byte[]>();
-    toSend.put(this, msgParts.get(number - 1).getContent());
-    generators.keySet().forEach(
-        rec -> toSend.put(rec, msgParts.get(rec.getNumber() - 1).getContent()));
+  /**
+   * The sequential part of the first phase: splits the next bytes to send and
+   * acquires the shared secrets.
+   */
+  void prepareMessageParts() throws InterruptedException {
+    // we acquire the next message to send from queuedMessages.
+    // if there are no or less than BYTES_PER_ROUND bytes to send,
+    // we leave the remaining bytes as 0s.
+    sentRounds++;
+    if (batch != null && (!batch.isEmpty() || queuedMessages
+        .size() >= (long) batch.capacity() * BYTES_PER_ROUND)) {
+      takeBatchedRound();
+      return;
+    }
+    var read = queuedMessages.drain(originalMessage, 0, BYTES_PER_ROUND);
+    Arrays.fill(originalMessage, read, BYTES_PER_ROUND, (byte) 0);
+    if (read > 0 && queuedMessages.isEmpty()) {
+      checkDrained();
+    }
 
-    // we acquire the next shared secret with each of the other cryptographers
-    // from the RNG and save it into sharedSecrets.
-    final var sharedSecrets = new HashMap<Cryptographer, byte[]>();
-    for (var entry : generators.entrySet()) {
-      var gen = entry.getValue();
-      var cryptographer = entry.getKey();
-      var sharedBytes = new byte[BYTES_PER_ROUND];
+    // We split the message, this enables threshold cryptography. The part for
+    // member i is written to toSend[i], unless it is split while sending.
+    if (toSend != null) {
+      splitCombineStrategy.split(originalMessage, toSend);
+    }
 
-      gen.nextBytes(sharedBytes);
-      sharedSecrets.put(cryptographer, sharedBytes);
+    // Every recipient gets the same secrets, so we only need their sum.
+    if (batch != null) {
+      generateSecretSum(firstRound + sentRounds - 1, secretSum);
+    } else if (prefetcher == null) {
+      generateSecretSum(secretSum);
+    } else {
+      var prefetched = prefetcher.take();
+      System.arraycopy(prefetched, 0, secretSum, 0, partLength);
+      prefetcher.recycle(prefetched);
     }
+  }
 
+  /**
+   * The parallelisable part of the first phase: hides the specified range of
+   * the message parts and hands it to all members. Disjoint ranges may be sent
+   * concurrently, unless the parts are split one recipient at a time, see
+   * {@link Cryptographer#sendsInRanges()}.
+   * 
+   * @param from The first byte of the parts to send.
+   * @param to   The end of the range, exclusive, at most
+   *             {@link Cryptographer#getPartLength()}.
+   */
+  void sendMessageParts(int from, int to) {
+    if (toSend == null) {
+      if (from != 0 || to != partLength) {
+        throw new IllegalStateException(
+            "Parts split one recipient at a time must be sent whole.");
+      }
+      splitCombineStrategy.split(originalMessage, partToSend, partSender);
+      return;
+    }
     // we xor all the secrets with the message we intend to send.
     // because we send n different messages, we have to to this for each
-    // recipient.
-    sharedSecrets.values().forEach(secret -> {
-      toSend.values().forEach(msg -> {
-        for (var i = 0; i < BYTES_PER_ROUND; i++) {
-          msg[i] ^= secret[i];
-        }
-      });
-    });
-
-    // Announce the correct message to each cryptographer,
+    // recipient. Then we announce the correct message to each cryptographer,
     // including one's self
-    addMessagePart(this, toSend.get(this));
-    generators.keySet().forEach(cr -> cr.addMessagePart(this, toSend.get(cr)));
+    var slot = slot(sentRounds - 1);
+    for (var i = 0; i < members.length; i++) {
+      XOR_KERNEL.xor(toSend[i], from, secretSum, from, to - from);
+      members[i].addMessagePart(this, slot, toSend[i], from, to);
+    }
     // generators.keySet().forEach(cr -> System.out
     // .println(number + " -> " + cr.number + ": " +
     // Arrays.toString(toSend.get(cr))));
+  }
 
-    // sync point
+  /**
+   * Hides a part split while sending and hands it to its recipient.
+   */
+  private void sendPart(byte[] part, int recipient) {
+    XOR_KERNEL.xor(part, 0, secretSum, 0, partLength);
+    members[recipient].addMessagePart(this, slot(sentRounds - 1), part, 0,
+        partLength);
+  }
+
+  /**
+   * @return Whether {@link Cryptographer#sendMessageParts(int, int)} may be
+   *         called for parts of the range, valid once the network has been
+   *         started.
+   */
+  boolean sendsInRanges() {
+    return toSend != null;
+  }
+
+  /**
+   * Hands the next round of the {@link Cryptographer#batch} to the first phase,
+   * taking and computing further rounds if needed. The send queue holds bytes
+   * for all rounds of the batch, so no round is delayed by computing ahead.
+   */
+  private void takeBatchedRound() {
+    if (batch.isEmpty()) {
+      drainLock.lock();
+      try {
+        batch.fill(queuedMessages);
+        batchedBytes = batch.pendingBytes();
+      } finally {
+        drainLock.unlock();
+      }
+    }
+    if (!batch.isComputed()) {
+      batch.compute(splitCombineStrategy, generators,
+          firstRound + sentRounds - 1);
+    }
+    var read = batch.take(toSend, secretSum);
+    drainLock.lock();
     try {
-      barrier.await();
-    } catch (BrokenBarrierException e) {
-      LOGGER.severe(e.getMessage());
-      e.printStackTrace();
+      batchedBytes -= read;
+    } finally {
+      drainLock.unlock();
+    }
+    if (read > 0 && queuedMessages.isEmpty()) {
+      checkDrained();
+    }
+  }
+
+  /**
+   * Writes the XOR of the shared secrets of the specified round into
+   * {@code sum}, using {@link SharedSecretGenerator#roundBytes}.
+   */
+  private void generateSecretSum(long round, byte[] sum) {
+    Arrays.fill(sum, 0, partLength, (byte) 0);
+    for (var generator : generators) {
+      generator.roundBytes(round, sharedSecret, 0, partLength);
+      XOR_KERNEL.xor(sum, 0, sharedSecret, 0, partLength);
+    }
+  }
+
+  /**
+   * Acquires the next shared secret with each of the other cryptographers and
+   * writes their XOR into the specified buffer.
+   */
+  private void generateSecretSum(byte[] sum) {
+    Arrays.fill(sum, 0, partLength, (byte) 0);
+    for (var generator : generators) {
+      generator.nextBytes(sharedSecret);
+      XOR_KERNEL.xor(sum, 0, sharedSecret, 0, partLength);
     }
   }
 
   public void executeProtocolRound2()
       throws InterruptedException, BrokenBarrierException {
-    for (int i = 0; i < lastMessagePart.length; i++) {
-      lastMessagePart[i] = 0;
-    }
+    simulateDelay();
+    receiveMessageParts();
+    synchronizer.awaitPhase();
+    reassembleMessage();
+  }
 
-    // Artificial delay to simulate networking
+  /**
+   * Artificial delay to simulate networking.
+   */
+  static void simulateDelay() {
     try {
       Thread.sleep(DELAY);
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
+  }
+
+  /**
+   * Artificial delay to simulate networking for parts that have been in flight
+   * since the specified time. Only the remainder of
+   * {@link Cryptographer#DELAY} is waited for, the rest passed while the next
+   * round was sent.
+   *
+   * @param inFlightSince The {@link System#nanoTime()} at which the parts were
+   *                      sent.
+   */
+  static void simulateDelay(long inFlightSince) {
+    var remaining =
+        DELAY * 1_000_000L - (System.nanoTime() - inFlightSince);
+    if (remaining <= 0) {
+      return;
+    }
+    try {
+      Thread.sleep(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+  }
 
-    currentMessages.values().forEach(msg -> {
-      for (var i = 0; i < BYTES_PER_ROUND; i++) {
-        lastMessagePart[i] ^= msg[i];
-        msg[i] = 0;
+  /**
+   * The second phase of a round: combines the parts all members sent us into
+   * our part of this round's message. If rounds are pipelined, this is the
+   * oldest round that has not been reassembled, the next one may already
+   * have been sent.
+   */
+  void receiveMessageParts() {
+    receiveMessageParts(0, partLength);
+  }
+
+  /**
+   * Combines the specified range of the parts all members sent us. Disjoint
+   * ranges may be received concurrently.
+   * 
+   * @param from The first byte of the parts to receive.
+   * @param to   The end of the range, exclusive, at most
+   *             {@link Cryptographer#getPartLength()}.
+   */
+  void receiveMessageParts(int from, int to) {
+    var slot = slot(reassembledRounds);
+    if (accumulators == null) {
+      XOR_KERNEL.fold(messageParts[slot], inboxes[slot], from, to - from);
+      for (var msg : inboxes[slot]) {
+        Arrays.fill(msg, from, to, (byte) 0);
       }
-    });
+    } else if (from == 0 && to == partLength) {
+      // the parts have been combined while they were sent, the part of the
+      // last round becomes the next accumulator
+      messageParts[slot] = accumulators[slot].exchange(messageParts[slot]);
+    } else {
+      accumulators[slot].drainTo(messageParts[slot], from, to);
+    }
 
     LOGGER.fine(number + ": Received message part");
-    LOGGER.finer(() -> Arrays.toString(lastMessagePart));
-    barrier.await();
-    reassembleMessage();
+    LOGGER.finer(() -> Arrays.toString(messageParts[slot]));
   }
 
   /**
@@ -240,16 +811,87 @@ public class Cryptographer implements Runnable {
    * enqueued messages have been sent.
    * 
    * @param msg The message to send.
+   * @throws IllegalStateException If the message does not fit into the send
+   *                               queue.
    */
   public void enqueueMessage(byte[] msg) {
-    for (var b : msg) {
-      queuedMessages.add(b);
+    beginEnqueue();
+    try {
+      if (!queuedMessages.offer(msg, 0, msg.length)) {
+        throw new IllegalStateException("Send queue is full.");
+      }
+    } finally {
+      endEnqueue();
     }
     LOGGER.info("Queued message to send with length " + msg.length + " bytes.");
     LOGGER.finest(() -> new String(msg));
 
   }
 
+  /**
+   * Queue a message to send, waiting for previously enqueued messages to be
+   * sent if the send queue is full. Message transmission begins as soon as
+   * previously enqueued messages have been sent.
+   * 
+   * @param msg The message to send.
+   * @throws InterruptedException If interrupted while waiting. Part of the
+   *                              message may already have been enqueued.
+   */
+  public void enqueueMessageBlocking(byte[] msg) throws InterruptedException {
+    beginEnqueue();
+    try {
+      queuedMessages.put(msg, 0, msg.length);
+    } finally {
+      endEnqueue();
+    }
+    LOGGER.info("Queued message to send with length " + msg.length + " bytes.");
+    LOGGER.finest(() -> new String(msg));
+  }
+
+  private void beginEnqueue() {
+    drainLock.lock();
+    try {
+      activeEnqueues++;
+      if (drained.isDone()) {
+        drained = new CompletableFuture<>();
+      }
+    } finally {
+      drainLock.unlock();
+    }
+  }
+
+  private void endEnqueue() {
+    drainLock.lock();
+    try {
+      activeEnqueues--;
+      drainTarget = Math.max(drainTarget, queuedMessages.enqueued());
+    } finally {
+      drainLock.unlock();
+    }
+    // the protocol may have sent everything while we were still enqueueing
+    checkDrained();
+  }
+
+  /**
+   * Completes {@link Cryptographer#drained} if every enqueued byte has been
+   * handed to a round.
+   */
+  private void checkDrained() {
+    CompletableFuture<Void> toComplete = null;
+    drainLock.lock();
+    try {
+      if (activeEnqueues == 0
+          && queuedMessages.dequeued() - batchedBytes >= drainTarget) {
+        toComplete = drained;
+      }
+    } finally {
+      drainLock.unlock();
+    }
+    if (toComplete != null) {
+      toComplete.complete(null);
+    }
+  }
+
   /**
    * Join message parts according to this cryptographer's
    * {@link SplitCombineStrategy}.
@@ -264,6 +906,10 @@ public class Cryptographer implements Runnable {
   @Override
   public void run() {
     LOGGER.fine(number + ": run() called");
+    if (pipelined) {
+      runPipelined();
+      return;
+    }
     while (true) {
       try {
         LOGGER.fine(number + ": Starting round");
@@ -272,13 +918,13 @@ public class Cryptographer implements Runnable {
         executeProtocolRound2();
         LOGGER.fine(number + ": Finished phase 2");
 
-        stateTestSem.acquire();
-        if (this.nwState.get() == State.TERMINATED) {
-          stateTestSem.release();
+        var running = synchronizer.awaitRound();
+        if (roundListener != null) {
+          roundListener.run();
+        }
+        if (!running) {
           break;
         }
-        barrier.await();
-        stateTestSem.release();
 
       } catch (InterruptedException e) {
         LOGGER.severe("Interrupted while amidst the protocol");
@@ -288,34 +934,90 @@ public class Cryptographer implements Runnable {
     }
   }
 
-  private void reassembleMessage() {
-    var msgsParts =
-        msgSharingPartners.stream().map(Cryptographer::getCurrentPart)
-            .collect(Collectors.toList());
+  /**
+   * Executes the protocol with pipelined rounds, see
+   * {@link Cryptographer#PIPELINE}. The next round is sent while the current
+   * one is in flight. Once the network has been stopped, the round sent last
+   * is completed as well, so that no dequeued bytes are lost.
+   */
+  private void runPipelined() {
+    try {
+      sendMessageParts();
+      var inFlightSince = System.nanoTime();
+      synchronizer.awaitPhase();
+      var running = true;
+      while (running) {
+        // the delay of the next round starts now, while the current one is
+        // still in flight
+        sendMessageParts();
+        var sentSince = System.nanoTime();
+        simulateDelay(inFlightSince);
+        receiveMessageParts();
+        // all members received the current round and sent the next one
+        synchronizer.awaitPhase();
+        inFlightSince = sentSince;
+        reassembleMessage();
 
-    var msg = joinMessage(msgsParts);
-    if (number == 1) {
-      // System.out.println(msgsParts);
+        running = synchronizer.awaitRound();
+        if (roundListener != null) {
+          roundListener.run();
+        }
+      }
+
+      simulateDelay(inFlightSince);
+      receiveMessageParts();
+      synchronizer.awaitPhase();
+      reassembleMessage();
+      synchronizer.awaitPhase();
+      if (roundListener != null) {
+        roundListener.run();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.severe("Interrupted while amidst the protocol");
+    } catch (BrokenBarrierException e) {
+      e.printStackTrace();
     }
-    onMessagePartReceived.accept(msg);
   }
 
-  private MessagePart getCurrentPart() {
-    return new MessagePart(number, lastMessagePart.clone());
+  /**
+   * The last phase of a round: combines our part with those of our sharing
+   * partners and hands the message to the listener.
+   */
+  void reassembleMessage() {
+    // our partners do not touch their parts until the next round using the
+    // same slot, so we can read them in place
+    var slot = slot(reassembledRounds++);
+    for (var i = 0; i < sharingPartners.length; i++) {
+      partnerParts[i] = sharingPartners[i].messageParts[slot];
+    }
+    splitCombineStrategy.combine(partnerPoints, partnerParts,
+        partnerParts.length, reassembled);
+
+    if (onMessagePartView != null) {
+      reassembledView.clear();
+      onMessagePartView.accept(reassembledView);
+    }
+    if (onMessagePartReceived != DEFAULT_MSG_PART_HANDLER) {
+      onMessagePartReceived.accept(reassembled.clone());
+    }
   }
 
-  private void addMessagePart(Cryptographer partner, byte[] part) {
+  private void addMessagePart(Cryptographer partner, int slot, byte[] part,
+      int from, int to) {
     // LOGGER.fine(name + ": received message part");
-    if (!Arrays.equals(part, new byte[BYTES_PER_ROUND])) {
+    if (LOGGER.isLoggable(Level.FINER)
+        && !Arrays.equals(part, new byte[partLength])) {
       LOGGER.finer(number + ": " + Arrays.toString(part));
     }
 
-    assert part.length == BYTES_PER_ROUND;
-    // synchronized (this.currentMessage) {
-    var memToWrite = currentMessages.get(partner);
-    for (var i = 0; i < BYTES_PER_ROUND; i++) {
-      memToWrite[i] ^= part[i];
+    assert part.length == partLength;
+    if (accumulators != null) {
+      accumulators[slot].xor(part, from, to);
+      return;
     }
+    // synchronized (this.currentMessage) {
+    XOR_KERNEL.xor(inboxes[slot][partner.position], from, part, from,
+        to - from);
     // }
   }
 
@@ -327,34 +1029,82 @@ public class Cryptographer implements Runnable {
     this.msgSharingPartners.add(partner);
   }
 
-  private void addGenerator(Cryptographer partner, Random rand) {
+  /**
+   * Synchronised, because the network lets distinct pairs agree on secrets
+   * concurrently.
+   */
+  private synchronized void addGenerator(Cryptographer partner,
+      SharedSecretGenerator rand) {
     requireNonNull(partner, "Partner can't be null");
-    requireNonNull(rand, "Random can't be null");
+    requireNonNull(rand, "Generator can't be null");
     assert partner != this;
 
-    generators.put(partner, rand);
-    currentMessages.put(partner, new byte[BYTES_PER_ROUND]);
+    if (generatorCount == generators.length) {
+      generators =
+          Arrays.copyOf(generators, Math.max(4, 2 * generators.length));
+      secretPartners = Arrays.copyOf(secretPartners, generators.length);
+    }
+    secretPartners[generatorCount] = partner;
+    generators[generatorCount++] = rand;
+  }
+
+  /**
+   * Forgets the secret shared with the specified cryptographer, if any. The
+   * partner has to forget it as well.
+   */
+  synchronized void removeGenerator(Cryptographer partner) {
+    for (var i = 0; i < generatorCount; i++) {
+      if (secretPartners[i] == partner) {
+        generatorCount--;
+        secretPartners[i] = secretPartners[generatorCount];
+        generators[i] = generators[generatorCount];
+        secretPartners[generatorCount] = null;
+        generators[generatorCount] = null;
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return The cryptographers we share a secret with.
+   */
+  synchronized Cryptographer[] getSecretPartners() {
+    return Arrays.copyOf(secretPartners, generatorCount);
   }
 
-  private long randomLong() {
-    return new Random().nextLong();
+  /**
+   * Returns the key pair this cryptographer uses for
+   * {@link KeyExchange.Kind#X25519}. It is generated on first use.
+   */
+  synchronized KeyPair getKeyPair() {
+    if (keyPair == null) {
+      keyPair = X25519KeyExchange.generateKeyPair();
+    }
+    return keyPair;
   }
 
   /**
    * Causes the two specified cryptographers to establish a random but common
    * seed for a pseudo random number generator, which can be used to generate
-   * shared secrets on the fly.
+   * shared secrets on the fly. Must be called at most once per pair. Distinct
+   * pairs may agree concurrently.
    */
   static void agreeOnSecret(Cryptographer c1, Cryptographer c2) {
-    var c1rand = c1.randomLong();
-    var c2rand = c2.randomLong();
+    agreeOnSecret(c1, c2, KeyExchange.Kind.RANDOM.create());
+  }
 
-    var sharedGen1 = new Random(c1rand * c2rand);
-    var sharedGen2 = new Random(c1rand * c2rand);
+  /**
+   * Like {@link Cryptographer#agreeOnSecret(Cryptographer, Cryptographer)},
+   * with the seed established by the specified key exchange.
+   */
+  static void agreeOnSecret(Cryptographer c1, Cryptographer c2,
+      KeyExchange exchange) {
+    var seed = exchange.agree(c1, c2);
+    var sharedGen1 = SECRET_GENERATOR.create(seed);
+    var sharedGen2 = SECRET_GENERATOR.create(seed);
 
     c1.addGenerator(c2, sharedGen1);
     c2.addGenerator(c1, sharedGen2);
-
   }
 
   @Override
@@ -1,14 +1,29 @@
 package de.uulm.vs.dcn;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * An implementation of a Dining Cryptographer Network.
@@ -26,9 +41,40 @@ public class DCNetwork {
   private final AtomicReference<State> state =
       new AtomicReference<>(State.CREATED);
   private final List<Cryptographer> cryptographers = new ArrayList<>();
+  /**
+   * The same members as {@link DCNetwork#cryptographers}, for cheap
+   * membership tests.
+   */
+  private final Set<Cryptographer> memberSet = new HashSet<>();
   private final int k;
+  private IntFunction<RoundSynchronizer> synchronizerFactory =
+      BarrierSynchronizer::new;
+  private ThreadMode threadMode = ThreadMode.PLATFORM;
+  private int spareSharingPartners;
+  private KeyGraph keyGraph = KeyGraph.complete();
+  private volatile long setupNanos;
+  private boolean parallelSetup = true;
   private Set<Thread> threads;
-  private Semaphore stateTestSem;
+  private RoundSynchronizer synchronizer;
+
+  /**
+   * The members executing the protocol, indexed by their position. Guarded by
+   * {@link DCNetwork#membershipLock} while running.
+   */
+  private Cryptographer[] running;
+  private final Object membershipLock = new Object();
+  private final List<Long> joinNanos =
+      Collections.synchronizedList(new ArrayList<>());
+  private final List<Long> leaveNanos =
+      Collections.synchronizedList(new ArrayList<>());
+
+  private final AtomicLong completedRounds = new AtomicLong();
+  /**
+   * Futures waiting for a round to complete, keyed by that round.
+   */
+  private final ConcurrentSkipListMap<Long, CompletableFuture<Long>> roundWaiters =
+      new ConcurrentSkipListMap<>();
+  private final CompletableFuture<Void> terminated = new CompletableFuture<>();
 
   /**
    * Constructs a DCN.
@@ -41,52 +87,521 @@ public class DCNetwork {
   }
 
   /**
-   * Adds a cryptographer to this network. The new member will automatically
-   * establish a seed for generating shared secret bits with every other member
-   * of the network.
+   * Adds a cryptographer to this network. When the network is started, the new
+   * member will automatically establish a seed for generating shared secret
+   * bits with its neighbours in the network's {@link KeyGraph}.
+   * <p>
+   * If the network is already running, the new member joins between two
+   * rounds, see {@link DCNetwork#changeMembership}. Its number must differ
+   * from those of all members.
    * 
    * @param cryptographer The cryptographer to add.
    * @return True if the cryptographer was successfully added, false if the
    *         cryptographer was already a member of the network.
+   * @throws IllegalStateException If the DCN has been terminated, or if it is
+   *                               running and the member can not join.
    */
   public boolean addCryptographer(Cryptographer cryptographer) {
+    requireNonNull(cryptographer, "cryptographer can't be null");
+    synchronized (membershipLock) {
+      if (state.get() == State.RUNNING) {
+        if (memberSet.contains(cryptographer)) {
+          return false;
+        }
+        joinNanos.add(changeMembership(cryptographer, null));
+        return true;
+      }
+      checkState(State.CREATED);
+      if (!this.memberSet.add(cryptographer)) {
+        return false;
+      }
+      this.cryptographers.add(cryptographer);
+      return true;
+    }
+  }
+
+  /**
+   * Removes a cryptographer from this network. If the network is running, the
+   * member leaves between two rounds, see {@link DCNetwork#changeMembership}.
+   * Bytes it has enqueued but not sent yet are not sent.
+   * 
+   * @return True if the cryptographer was removed, false if it was not a
+   *         member of the network.
+   * @throws IllegalStateException If the DCN has been terminated, or if it is
+   *                               running and the member can not leave.
+   */
+  public boolean removeCryptographer(Cryptographer cryptographer) {
+    synchronized (membershipLock) {
+      if (!memberSet.contains(cryptographer)) {
+        return false;
+      }
+      if (state.get() == State.RUNNING) {
+        leaveNanos.add(changeMembership(null, cryptographer));
+        return true;
+      }
+      checkState(State.CREATED);
+      memberSet.remove(cryptographer);
+      cryptographers.remove(cryptographer);
+      return true;
+    }
+  }
+
+  /**
+   * @return The members of this network, in the order they were added.
+   */
+  public List<Cryptographer> getCryptographers() {
+    return Collections.unmodifiableList(cryptographers);
+  }
+
+  /**
+   * Returns a builder for a network of n members, numbered from 1 to n, which
+   * need k message parts to reconstruct a message.
+   */
+  public static Builder builder(int n, int k) {
+    return new Builder(n, k);
+  }
+
+  /**
+   * Sets how the members are synchronised between the phases of the protocol.
+   * Defaults to a {@link BarrierSynchronizer}.
+   * 
+   * @param synchronizerFactory Creates a synchroniser for the specified number
+   *                            of members.
+   * @throws IllegalStateException If the DCN has already been started.
+   */
+  public void setSynchronizerFactory(
+      IntFunction<RoundSynchronizer> synchronizerFactory) {
+    checkState(State.CREATED);
+    this.synchronizerFactory =
+        requireNonNull(synchronizerFactory,
+            "synchronizerFactory can't be null");
+  }
+
+  /**
+   * Sets which kind of threads the members run on. Defaults to
+   * {@link ThreadMode#PLATFORM}.
+   * 
+   * @throws IllegalStateException If the DCN has already been started.
+   */
+  public void setThreadMode(ThreadMode threadMode) {
     checkState(State.CREATED);
-    if (this.cryptographers.contains(cryptographer)) {
-      return false;
+    this.threadMode = requireNonNull(threadMode, "threadMode can't be null");
+  }
+
+  /**
+   * Sets whether the setup in {@link DCNetwork#start()}, agreeing on secrets,
+   * assigning sharing partners and allocating buffers, runs in parallel on the
+   * common fork/join pool. Defaults to true.
+   * 
+   * @throws IllegalStateException If the DCN has already been started.
+   */
+  public void setParallelSetup(boolean parallelSetup) {
+    checkState(State.CREATED);
+    this.parallelSetup = parallelSetup;
+  }
+
+  /**
+   * Sets how many sharing partners each member gets in addition to the k - 1
+   * needed for reconstructing messages. The spare parts allow a
+   * {@link RobustShamirSplitCombine} to detect and correct corrupted parts.
+   * Defaults to 0.
+   * 
+   * @throws IllegalStateException If the DCN has already been started.
+   */
+  public void setSpareSharingPartners(int spareSharingPartners) {
+    checkState(State.CREATED);
+    if (spareSharingPartners < 0) {
+      throw new IllegalArgumentException(
+          "spareSharingPartners can't be negative");
     }
-    this.cryptographers.forEach(
-        partner -> Cryptographer.agreeOnSecret(cryptographer, partner));
-    this.cryptographers.add(cryptographer);
-    cryptographer.setNwState(this.state);
-    return true;
+    this.spareSharingPartners = spareSharingPartners;
+  }
+
+  /**
+   * Sets which members share a secret. Defaults to
+   * {@link KeyGraph#complete()}, every member with every other member.
+   * 
+   * @throws IllegalStateException If the DCN has already been started.
+   */
+  public void setKeyGraph(KeyGraph keyGraph) {
+    checkState(State.CREATED);
+    this.keyGraph = requireNonNull(keyGraph, "keyGraph can't be null");
   }
 
   /**
    * Starts the DCN. Members will begin executing the DCN protocol concurrently
    * until {@link DCNetwork#stop} is called on this DCN instance. The DCN also
    * manages the assignment of an appropriate number of sharing partners for
-   * each member. Sharing partners will share the message parts they received in
-   * order to reconstruct the entire message.
+   * each member, and lets the neighbours in the {@link KeyGraph} agree on their
+   * shared secrets. Sharing partners will share the message parts they
+   * received in order to reconstruct the entire message. All buffers the
+   * members need while running are allocated here.
    * 
-   * @param stateTestSem The semaphore for synchronising with the members of the
-   *                     network.
    * @throws IllegalStateException If {@link DCNetwork#start} has already been
-   *                               called on this DCN.
+   *                               called on this DCN, or if the members are not
+   *                               numbered from 1 to n.
+   * @throws UnsupportedOperationException If the thread mode is not supported
+   *                                       by this JVM.
    */
-  public void start(Semaphore stateTestSem) {
+  public void start() {
+    synchronized (membershipLock) {
+      startLocked();
+    }
+    LOGGER.info("DCNetwork started");
+  }
+
+  private void startLocked() {
     checkState(State.CREATED);
-    this.stateTestSem = stateTestSem;
+    if (!threadMode.isSupported()) {
+      throw new UnsupportedOperationException(
+          threadMode + " threads are not supported by this JVM.");
+    }
+    var members = new Cryptographer[cryptographers.size()];
+    for (var cryptographer : cryptographers) {
+      var index = cryptographer.getNumber() - 1;
+      if (index < 0 || index >= members.length || members[index] != null) {
+        throw new IllegalStateException(
+            "Cryptographers must be numbered from 1 to n.");
+      }
+      members[index] = cryptographer;
+    }
+
+    agreeOnSecrets(members);
+
     this.state.set(State.RUNNING);
-    for (int i = 0; i < cryptographers.size(); i++) {
-      for (int j = 1; j < k; j++) {
-        cryptographers.get(i).addSharingPartner(
-            cryptographers.get((i + j) % cryptographers.size()));
+    assignSharingPartners(members);
+
+    running = members;
+    launch(members);
+  }
+
+  /**
+   * Gives every member the k - 1 (plus spare) members following it as sharing
+   * partners.
+   */
+  private void assignSharingPartners(Cryptographer[] members) {
+    var partners = Math.min(k + spareSharingPartners, members.length);
+    setupRange(members.length).forEach(i -> {
+      for (int j = 1; j < partners; j++) {
+        members[i].addSharingPartner(members[(i + j) % members.length]);
+      }
+    });
+  }
+
+  /**
+   * Lets a member join or leave the running network. The members finish their
+   * current round and stop, then the network is reconfigured and the protocol
+   * resumes with the next round. The bytes queued by the remaining members are
+   * kept.
+   * <p>
+   * Only the pairs that gain or lose an edge in the {@link KeyGraph} are
+   * re-keyed, all other generators continue their streams. With the default
+   * complete graph that is one agreement per member for a join and none for a
+   * leave. The members get strategies resized to the new number of members,
+   * new sharing partners and a new synchroniser.
+   * 
+   * @param joiner The member joining, or null.
+   * @param leaver The member leaving, or null.
+   * @return The time in nanoseconds the protocol was suspended.
+   * @throws IllegalStateException If members prefetch their secrets, since
+   *                               the prefetched rounds would be lost, or if
+   *                               the change is invalid.
+   */
+  private long changeMembership(Cryptographer joiner, Cryptographer leaver) {
+    checkState(State.RUNNING);
+    var old = running;
+    if (Arrays.stream(old).anyMatch(Cryptographer::isPrefetching)) {
+      throw new IllegalStateException(
+          "Members can not change while secrets are prefetched.");
+    }
+    if (joiner != null && Arrays.stream(old)
+        .anyMatch(c -> c.getNumber() == joiner.getNumber())) {
+      throw new IllegalStateException(
+          "Number " + joiner.getNumber() + " is already taken.");
+    }
+    if (leaver != null && old.length == 1) {
+      throw new IllegalStateException("The last member can not leave.");
+    }
+    var members = new ArrayList<Cryptographer>(old.length + 1);
+    for (var c : old) {
+      if (c != leaver) {
+        members.add(c);
+      }
+    }
+    if (joiner != null) {
+      members.add(joiner);
+    }
+    var next = members.toArray(new Cryptographer[0]);
+
+    // resizing may fail, so it is done before anything is changed. Members
+    // sharing a strategy keep sharing it.
+    var resized = new IdentityHashMap<SplitCombineStrategy, SplitCombineStrategy>();
+    var strategies = new SplitCombineStrategy[next.length];
+    for (var i = 0; i < next.length; i++) {
+      strategies[i] = resized.computeIfAbsent(
+          next[i].getSplitCombineStrategy(), s -> s.resize(next.length));
+    }
+
+    var start = System.nanoTime();
+    halt();
+    for (var c : old) {
+      c.release();
+      c.setRoundListener(null);
+    }
+    for (var i = 0; i < next.length; i++) {
+      next[i].setSplitCombineStrategy(strategies[i]);
+    }
+    if (leaver != null) {
+      cryptographers.remove(leaver);
+      memberSet.remove(leaver);
+      leaver.clearSharingPartners();
+      for (var partner : leaver.getSecretPartners()) {
+        leaver.removeGenerator(partner);
       }
+    } else {
+      cryptographers.add(joiner);
+      memberSet.add(joiner);
+    }
+
+    rekey(next);
+    for (var c : next) {
+      c.clearSharingPartners();
+    }
+    assignSharingPartners(next);
+
+    running = next;
+    launch(next);
+    var nanos = System.nanoTime() - start;
+    LOGGER.info(() -> "Membership changed in " + nanos + " ns");
+    return nanos;
+  }
+
+  /**
+   * Makes the shared secrets of the members match the key graph for their
+   * number, dropping secrets of pairs which are no longer neighbours and
+   * agreeing on those of new neighbours.
+   */
+  private void rekey(Cryptographer[] members) {
+    var neighbours = keyGraph.neighbours(members.length);
+    var wanted = new IdentityHashMap<Cryptographer, Set<Cryptographer>>();
+    for (var i = 0; i < members.length; i++) {
+      var set = Collections.newSetFromMap(
+          new IdentityHashMap<Cryptographer, Boolean>());
+      for (var j : neighbours[i]) {
+        set.add(members[j]);
+      }
+      wanted.put(members[i], set);
+    }
+    var existing = new ArrayList<Set<Cryptographer>>(members.length);
+    for (var c : members) {
+      var set = Collections.newSetFromMap(
+          new IdentityHashMap<Cryptographer, Boolean>());
+      for (var partner : c.getSecretPartners()) {
+        if (wanted.get(c).contains(partner)) {
+          set.add(partner);
+        } else {
+          // includes members that left
+          c.removeGenerator(partner);
+        }
+      }
+      existing.add(set);
+    }
+    var exchange = Cryptographer.KEY_EXCHANGE.create();
+    setupRange(members.length).forEach(i -> {
+      for (var j : neighbours[i]) {
+        if (j > i && !existing.get(i).contains(members[j])) {
+          Cryptographer.agreeOnSecret(members[i], members[j], exchange);
+        }
+      }
+    });
+  }
+
+  /**
+   * Lets the neighbours in the key graph agree on their shared secrets.
+   */
+  private void agreeOnSecrets(Cryptographer[] members) {
+    var setupStart = System.nanoTime();
+    var neighbours = keyGraph.neighbours(members.length);
+    var exchange = Cryptographer.KEY_EXCHANGE.create();
+    setupRange(members.length).forEach(i -> {
+      for (var j : neighbours[i]) {
+        // every edge is listed by both of its members
+        if (j > i) {
+          Cryptographer.agreeOnSecret(members[i], members[j], exchange);
+        }
+      }
+    });
+    setupNanos = System.nanoTime() - setupStart;
+  }
+
+  /**
+   * Prepares all members, see {@link Cryptographer#prepare}. Engines call this
+   * from {@link DCNetwork#launch}, which may be called again after members
+   * joined or left.
+   */
+  protected void prepare(Cryptographer[] members,
+      RoundSynchronizer synchronizer, ThreadFactory threadFactory) {
+    // the round index keys the shared secrets of parallel rounds. No round is
+    // in flight when the members are prepared.
+    var firstRound = completedRounds.get();
+    for (var i = 0; i < members.length; i++) {
+      members[i].setPosition(i);
+      members[i].setFirstRound(firstRound);
+    }
+    setupRange(members.length).forEach(
+        i -> members[i].prepare(members, synchronizer, threadFactory));
+  }
+
+  /**
+   * @return The indices of the members, as a parallel stream if the setup
+   *         runs in parallel.
+   */
+  private IntStream setupRange(int n) {
+    var range = IntStream.range(0, n);
+    return parallelSetup ? range.parallel() : range;
+  }
+
+  /**
+   * @return The time in nanoseconds it took the members to agree on their
+   *         shared secrets when the DCN was started, 0 before.
+   */
+  public long getSetupNanos() {
+    return setupNanos;
+  }
+
+  /**
+   * @return The time in nanoseconds the protocol was suspended for each member
+   *         that joined the running DCN, in order.
+   */
+  public List<Long> getJoinNanos() {
+    synchronized (joinNanos) {
+      return new ArrayList<>(joinNanos);
     }
+  }
+
+  /**
+   * @return The time in nanoseconds the protocol was suspended for each member
+   *         that left the running DCN, in order.
+   */
+  public List<Long> getLeaveNanos() {
+    synchronized (leaveNanos) {
+      return new ArrayList<>(leaveNanos);
+    }
+  }
+
+  /**
+   * Prepares the members and starts executing the protocol. Runs every member
+   * on its own thread, synchronised by a {@link RoundSynchronizer}. Called
+   * again with the new members after a member joined or left, once
+   * {@link DCNetwork#halt()} returned.
+   * 
+   * @param members All members, indexed by their position.
+   */
+  protected void launch(Cryptographer[] members) {
+    this.synchronizer = synchronizerFactory.apply(members.length);
+    prepare(members, synchronizer, threadMode::newThread);
+    // every member passes the end of a round only after all others finished
+    // it, so one of them can report the round
+    members[0].setRoundListener(this::roundCompleted);
 
-    threads = cryptographers.stream().map(Thread::new).collect(toSet());
+    threads =
+        Arrays.stream(members).map(threadMode::newThread).collect(toSet());
     threads.forEach(Thread::start);
-    LOGGER.info("DCNetwork started");
+  }
+
+  /**
+   * Lets the members finish the current round and waits until they have
+   * stopped executing the protocol.
+   */
+  protected void halt() {
+    synchronizer.terminate();
+    for (var thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Must be called by the engine once all members have finished a round.
+   */
+  protected void roundCompleted() {
+    var round = completedRounds.incrementAndGet();
+    Map.Entry<Long, CompletableFuture<Long>> waiter;
+    while ((waiter = roundWaiters.firstEntry()) != null
+        && waiter.getKey() <= round) {
+      roundWaiters.remove(waiter.getKey(), waiter.getValue());
+      waiter.getValue().complete(round);
+    }
+  }
+
+  /**
+   * @return The number of rounds all members have finished since the DCN was
+   *         started.
+   */
+  public long getCompletedRounds() {
+    return completedRounds.get();
+  }
+
+  /**
+   * Returns a future which is completed with the number of completed rounds
+   * once the specified round has been finished by all members. The future is
+   * cancelled if the DCN stops before. It is completed by a thread executing
+   * the protocol, so dependent actions should be quick or asynchronous.
+   * 
+   * @param round The round to wait for, counting from 1.
+   */
+  public CompletableFuture<Long> whenRoundCompleted(long round) {
+    var completed = completedRounds.get();
+    if (completed >= round) {
+      return CompletableFuture.completedFuture(completed);
+    }
+    var waiter =
+        roundWaiters.computeIfAbsent(round, r -> new CompletableFuture<>());
+    // the round may have been completed or the DCN stopped before the waiter
+    // was registered
+    completed = completedRounds.get();
+    if (completed >= round) {
+      roundWaiters.remove(round, waiter);
+      waiter.complete(completed);
+    } else if (terminated.isDone()) {
+      roundWaiters.remove(round, waiter);
+      waiter.cancel(false);
+    }
+    return waiter;
+  }
+
+  /**
+   * Blocks until the specified number of rounds, counted from now, has been
+   * finished by all members.
+   * 
+   * @throws CancellationException If the DCN stops before.
+   */
+  public void awaitRounds(long rounds) throws InterruptedException {
+    try {
+      whenRoundCompleted(completedRounds.get() + rounds).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns a future which is completed once the DCN has been stopped and all
+   * members have stopped executing the protocol.
+   */
+  public CompletableFuture<Void> whenTerminated() {
+    return terminated;
+  }
+
+  /**
+   * Kept for compatibility, the same as {@link DCNetwork#start()}. The members
+   * are synchronised by the network's {@link RoundSynchronizer}, so
+   * {@code stateTestSem} is ignored.
+   */
+  public void start(Semaphore stateTestSem) {
+    start();
   }
 
   /**
@@ -96,20 +611,20 @@ public class DCNetwork {
    * @throws IllegalStateException If the DCNetwork is not running.
    */
   public void stop() {
-    checkState(State.RUNNING);
+    synchronized (membershipLock) {
+      checkState(State.RUNNING);
 
-    try {
-      stateTestSem.acquire(cryptographers.size());
       this.state.set(State.TERMINATED);
-      stateTestSem.release(cryptographers.size());
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    }
 
-    LOGGER.info("DCNetwork stopping...");
+      LOGGER.info("DCNetwork stopping...");
 
-    while (threads.stream().anyMatch(Thread::isAlive)) {
+      halt();
+      cryptographers.forEach(Cryptographer::release);
     }
+    terminated.complete(null);
+    // no further rounds will be completed
+    roundWaiters.values().forEach(waiter -> waiter.cancel(false));
+    roundWaiters.clear();
 
     LOGGER.info("DCNetwork stopped");
   }
@@ -138,6 +653,186 @@ public class DCNetwork {
     }
   }
 
+  /**
+   * Creates a DCN with all its members at once, see
+   * {@link DCNetwork#builder(int, int)}. Creating the members in bulk avoids
+   * the checks of {@link DCNetwork#addCryptographer} and can be done in
+   * parallel. The remaining setup is done by {@link DCNetwork#start()}, in
+   * parallel unless disabled with {@link Builder#parallel(boolean)}.
+   * <p>
+   * This only speeds up the setup; the size of a network is limited by the
+   * protocol itself. Unless {@link Cryptographer#ACCUMULATE} is set, every
+   * member holds one buffer of the part length per member for incoming and one
+   * for outgoing parts, {@code 2 * n^2} buffers in total: 1.6 TB for n =
+   * 10,000 at 8192 bytes per round. With it, every member holds a few buffers
+   * of the part length, and n = 1,000 takes 76 MB. Either way, every member
+   * hides and sends a part to every member each round, so a round XORs
+   * {@code n^2} parts: 13 s per round for n = 1,000 at 8192 bytes on one core.
+   * <p>
+   * A plain {@link DCNetwork} runs one thread per member. For thousands of
+   * members, use virtual threads, a {@link LockstepDCNetwork} or a
+   * {@link ForkJoinDCNetwork}.
+   */
+  public static final class Builder {
+    private final int n;
+    private final int k;
+    private IntFunction<DCNetwork> networkFactory = DCNetwork::new;
+    private SplitCombineStrategy splitCombineStrategy;
+    private IntFunction<RoundSynchronizer> synchronizerFactory =
+        BarrierSynchronizer::new;
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+    private KeyGraph keyGraph = KeyGraph.complete();
+    private int spareSharingPartners;
+    private boolean parallel = true;
+
+    private Builder(int n, int k) {
+      if (n < 1 || k < 1) {
+        throw new IllegalArgumentException(
+            "n and k must be positive, got n=" + n + ", k=" + k + ".");
+      }
+      this.n = n;
+      this.k = k;
+    }
+
+    /**
+     * Sets the engine executing the protocol, e.g.
+     * {@code LockstepDCNetwork::new}. Defaults to {@link DCNetwork}.
+     * 
+     * @param networkFactory Creates an empty network for the specified k.
+     */
+    public Builder engine(IntFunction<DCNetwork> networkFactory) {
+      this.networkFactory =
+          requireNonNull(networkFactory, "networkFactory can't be null");
+      return this;
+    }
+
+    /**
+     * Sets the strategy shared by all members. Required.
+     */
+    public Builder splitCombineStrategy(
+        SplitCombineStrategy splitCombineStrategy) {
+      this.splitCombineStrategy =
+          requireNonNull(splitCombineStrategy,
+              "splitCombineStrategy can't be null");
+      return this;
+    }
+
+    /**
+     * @see DCNetwork#setSynchronizerFactory
+     */
+    public Builder synchronizerFactory(
+        IntFunction<RoundSynchronizer> synchronizerFactory) {
+      this.synchronizerFactory =
+          requireNonNull(synchronizerFactory,
+              "synchronizerFactory can't be null");
+      return this;
+    }
+
+    /**
+     * @see DCNetwork#setThreadMode
+     */
+    public Builder threadMode(ThreadMode threadMode) {
+      this.threadMode = requireNonNull(threadMode, "threadMode can't be null");
+      return this;
+    }
+
+    /**
+     * @see DCNetwork#setKeyGraph
+     */
+    public Builder keyGraph(KeyGraph keyGraph) {
+      this.keyGraph = requireNonNull(keyGraph, "keyGraph can't be null");
+      return this;
+    }
+
+    /**
+     * @see DCNetwork#setSpareSharingPartners
+     */
+    public Builder spareSharingPartners(int spareSharingPartners) {
+      if (spareSharingPartners < 0) {
+        throw new IllegalArgumentException(
+            "spareSharingPartners can't be negative");
+      }
+      this.spareSharingPartners = spareSharingPartners;
+      return this;
+    }
+
+    /**
+     * Sets whether the members are created and set up in parallel. Defaults to
+     * true.
+     * 
+     * @see DCNetwork#setParallelSetup
+     */
+    public Builder parallel(boolean parallel) {
+      this.parallel = parallel;
+      return this;
+    }
+
+    /**
+     * Creates the network and its members. The network has not been started
+     * yet, so listeners can still be attached to the members.
+     * 
+     * @throws IllegalStateException If no strategy has been set.
+     */
+    public DCNetwork build() {
+      if (splitCombineStrategy == null) {
+        throw new IllegalStateException("No split combine strategy set.");
+      }
+      var network = networkFactory.apply(k);
+      network.setSynchronizerFactory(synchronizerFactory);
+      network.setThreadMode(threadMode);
+      network.setKeyGraph(keyGraph);
+      network.setSpareSharingPartners(spareSharingPartners);
+      network.setParallelSetup(parallel);
+
+      var range = IntStream.range(0, n);
+      var members =
+          (parallel ? range.parallel() : range)
+              .mapToObj(i -> new Cryptographer(i + 1, splitCombineStrategy))
+              .toArray(Cryptographer[]::new);
+      // the members are distinct, so there is nothing to check
+      network.cryptographers.addAll(Arrays.asList(members));
+      network.memberSet.addAll(network.cryptographers);
+      return network;
+    }
+  }
+
+  /**
+   * The kinds of threads the members of a DCN can run on.
+   */
+  public enum ThreadMode {
+    /**
+     * One operating system thread per member.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per member. Requires Java 21 or later.
+     */
+    VIRTUAL;
+
+    public boolean isSupported() {
+      return this == PLATFORM || VirtualThreads.isSupported();
+    }
+
+    /**
+     * Creates an unstarted thread of this kind.
+     * 
+     * @throws UnsupportedOperationException If this kind is not supported.
+     */
+    public Thread newThread(Runnable task) {
+      return this == PLATFORM ? new Thread(task)
+          : VirtualThreads.newThread(task);
+    }
+
+    /**
+     * Parses names like {@code virtual} or {@code VIRTUAL}.
+     * 
+     * @throws IllegalArgumentException If there is no such mode.
+     */
+    public static ThreadMode parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+  }
+
   /**
    * A state in which a DCN can be at any given moment.
    */
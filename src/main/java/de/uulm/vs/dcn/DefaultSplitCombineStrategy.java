@@ -1,7 +1,9 @@
 package de.uulm.vs.dcn;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 /**
  * A (n, 1) secret sharing scheme. Splitting a message works by copying it.
@@ -16,6 +18,11 @@ public class DefaultSplitCombineStrategy extends SplitCombineStrategy {
     super(n, k);
   }
 
+  @Override
+  public DefaultSplitCombineStrategy resize(int n) {
+    return new DefaultSplitCombineStrategy(n, k);
+  }
+
   @Override
   public List<MessagePart> split(byte[] msg) {
     var list = new ArrayList<MessagePart>();
@@ -31,4 +38,28 @@ public class DefaultSplitCombineStrategy extends SplitCombineStrategy {
         .orElse(new byte[0]);
   }
 
+  @Override
+  public void split(byte[] msg, byte[][] shares) {
+    for (var i = 0; i < n; i++) {
+      System.arraycopy(msg, 0, shares[i], 0, msg.length);
+    }
+  }
+
+  @Override
+  public void split(byte[] msg, byte[] part, ObjIntConsumer<byte[]> consumer) {
+    for (var i = 0; i < n; i++) {
+      System.arraycopy(msg, 0, part, 0, msg.length);
+      consumer.accept(part, i);
+    }
+  }
+
+  @Override
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    if (count == 0) {
+      Arrays.fill(out, (byte) 0);
+    } else {
+      System.arraycopy(parts[0], 0, out, 0, out.length);
+    }
+  }
+
 }
@@ -0,0 +1,155 @@
+package de.uulm.vs.dcn;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Shamir's secret sharing over GF(256), compatible with
+ * {@link ShamirSplitCombine}. Instead of evaluating one random polynomial per
+ * byte, the random coefficients for a whole block of bytes are drawn at once
+ * and every share is computed with bulk operations of {@link GF256#KERNEL}.
+ * The buffer based methods do not allocate once the per-thread scratch space
+ * has been set up, the list based ones only allocate the result.
+ * <p>
+ * Instances may be shared between threads: every thread draws its
+ * coefficients from its own {@link SecureRandom}.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class FastShamirSplitCombine extends SplitCombineStrategy {
+  /**
+   * The number of message bytes whose coefficients are drawn at once.
+   */
+  private static final int BLOCK = 4096;
+
+  private final ThreadLocal<Scratch> scratch =
+      ThreadLocal.withInitial(Scratch::new);
+
+  /**
+   * {@code x^d}, indexed by {@code (x - 1) * (k - 1) + d - 1}.
+   */
+  private final int[] powers;
+
+  public FastShamirSplitCombine(int n, int k) {
+    super(n, k);
+    if (k < 1 || n < k || n > 255) {
+      throw new IllegalArgumentException(
+          "Requires 1 <= k <= n <= 255, got n=" + n + ", k=" + k + ".");
+    }
+    powers = new int[n * (k - 1)];
+    for (var x = 1; x <= n; x++) {
+      for (var d = 1; d < k; d++) {
+        powers[(x - 1) * (k - 1) + d - 1] = GF256.pow(x, d);
+      }
+    }
+  }
+
+  @Override
+  public FastShamirSplitCombine resize(int n) {
+    return new FastShamirSplitCombine(n, k);
+  }
+
+  @Override
+  public List<MessagePart> split(byte[] msg) {
+    var shares = new byte[n][msg.length];
+    split(msg, shares);
+    var list = new ArrayList<MessagePart>(n);
+    for (var i = 0; i < n; i++) {
+      list.add(new MessagePart(i + 1, shares[i]));
+    }
+    return list;
+  }
+
+  /**
+   * Splits the message into the specified buffers. The share for point
+   * {@code i + 1} is written to {@code shares[i]}.
+   *
+   * @param msg    The message to split.
+   * @param shares n buffers of at least {@code msg.length} bytes.
+   */
+  @Override
+  public void split(byte[] msg, byte[][] shares) {
+    var local = scratch.get();
+    var stride = Math.min(BLOCK, msg.length);
+    var coefficients = local.coefficients((k - 1) * stride);
+    for (var from = 0; from < msg.length; from += BLOCK) {
+      var len = Math.min(BLOCK, msg.length - from);
+      local.random.nextBytes(coefficients);
+      for (var x = 1; x <= n; x++) {
+        var share = shares[x - 1];
+        System.arraycopy(msg, from, share, from, len);
+        for (var d = 1; d < k; d++) {
+          GF256.KERNEL.mulAdd(share, from, coefficients, (d - 1) * stride,
+              len, powers[(x - 1) * (k - 1) + d - 1]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Hands out the shares one at a time. All shares have to lie on the same
+   * polynomials, so the coefficients of the whole message are drawn up front,
+   * {@code k - 1} times the length of the message.
+   */
+  @Override
+  public void split(byte[] msg, byte[] part, ObjIntConsumer<byte[]> consumer) {
+    var len = msg.length;
+    var local = scratch.get();
+    var coefficients = local.coefficients((k - 1) * len);
+    local.random.nextBytes(coefficients);
+    for (var x = 1; x <= n; x++) {
+      System.arraycopy(msg, 0, part, 0, len);
+      for (var d = 1; d < k; d++) {
+        GF256.KERNEL.mulAdd(part, 0, coefficients, (d - 1) * len, len,
+            powers[(x - 1) * (k - 1) + d - 1]);
+      }
+      consumer.accept(part, x - 1);
+    }
+  }
+
+  @Override
+  public byte[] combine(List<MessagePart> msgs) {
+    var count = msgs.size();
+    var points = new int[count];
+    var shares = new byte[count][];
+    for (var i = 0; i < count; i++) {
+      points[i] = msgs.get(i).getPoint();
+      shares[i] = msgs.get(i).getContent();
+    }
+    var out = new byte[count == 0 ? 0 : shares[0].length];
+    combine(points, shares, count, out);
+    return out;
+  }
+
+  /**
+   * Combines the first {@code count} shares into the specified buffer. The
+   * Lagrange coefficients are cached per set of points.
+   *
+   * @param points The points of the shares, pairwise distinct.
+   * @param shares The shares, at least {@code out.length} bytes each.
+   * @param out    Receives the message.
+   */
+  @Override
+  public void combine(int[] points, byte[][] shares, int count, byte[] out) {
+    LagrangeCache.interpolate(points, shares, count, out);
+  }
+
+  private static final class Scratch {
+    private final SecureRandom random = new SecureRandom();
+    private byte[] coefficients = new byte[0];
+
+    /**
+     * @return A buffer of {@code len} bytes for the coefficients of one block,
+     *         or of the whole message.
+     */
+    private byte[] coefficients(int len) {
+      if (coefficients.length != len) {
+        coefficients = new byte[len];
+      }
+      return coefficients;
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A DCN whose members are executed on a work-stealing
+ * {@link ForkJoinPool} with a fixed number of threads, independent of the
+ * number of members. Each phase of a round is split into one task per member,
+ * and for large rounds into one task per member and chunk of
+ * {@link ForkJoinDCNetwork#CHUNK_SIZE} bytes. A phase ends when all of its
+ * tasks have been joined. The artificial {@link Cryptographer#DELAY} is
+ * applied once per round. With {@link Cryptographer#PIPELINE}, the next round
+ * is sent during the delay of the current one.
+ * <p>
+ * The synchroniser and thread mode of {@link DCNetwork} are ignored.
+ * 
+ * @author Juri Dispan
+ */
+public class ForkJoinDCNetwork extends DCNetwork {
+  /**
+   * The number of bytes per task in the phases that can be split by range.
+   */
+  public static int CHUNK_SIZE = 8192;
+
+  private final int parallelism;
+  private volatile boolean stopRequested;
+  private ForkJoinPool pool;
+  private Thread driver;
+
+  /**
+   * Constructs a DCN using one thread per available processor.
+   * 
+   * @param k The number of message parts needed to reconstruct a message. This
+   *          is needed for assigning message part sharing partners.
+   */
+  public ForkJoinDCNetwork(int k) {
+    this(k, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a DCN.
+   * 
+   * @param k           The number of message parts needed to reconstruct a
+   *                    message. This is needed for assigning message part
+   *                    sharing partners.
+   * @param parallelism The number of threads executing the protocol.
+   */
+  public ForkJoinDCNetwork(int k, int parallelism) {
+    super(k);
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive");
+    }
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  protected void launch(Cryptographer[] members) {
+    prepare(members, null, Thread::new);
+    // launched again after members joined or left
+    stopRequested = false;
+    pool = new ForkJoinPool(parallelism);
+    driver = new Thread(() -> drive(members));
+    driver.start();
+  }
+
+  @Override
+  protected void halt() {
+    stopRequested = true;
+    try {
+      driver.join();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+    pool.shutdown();
+  }
+
+  private void drive(Cryptographer[] members) {
+    if (members[0].isPipelined()) {
+      drivePipelined(members);
+      return;
+    }
+    while (!stopRequested) {
+      send(members);
+      Cryptographer.simulateDelay();
+      receive(members);
+    }
+  }
+
+  /**
+   * Sends every round before the previous one is received. The round sent last
+   * is completed after stopping, so that no dequeued bytes are lost.
+   */
+  private void drivePipelined(Cryptographer[] members) {
+    send(members);
+    var inFlightSince = System.nanoTime();
+    while (true) {
+      var stopping = stopRequested;
+      var sentSince = 0L;
+      if (!stopping) {
+        send(members);
+        sentSince = System.nanoTime();
+      }
+      Cryptographer.simulateDelay(inFlightSince);
+      receive(members);
+      if (stopping) {
+        return;
+      }
+      inFlightSince = sentSince;
+    }
+  }
+
+  private void send(Cryptographer[] members) {
+    // all members exchange parts of the same length
+    var partLength = members[0].getPartLength();
+    var chunks = Math.max(1, ceilDiv(partLength, CHUNK_SIZE));
+    // the sequential part of sending depends on the secret generators and
+    // the send queue, so it can only be split by member
+    pool.invoke(new PhaseTask(members.length, i -> {
+      try {
+        members[i].prepareMessageParts();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(
+            "Interrupted while amidst the protocol", e);
+      }
+    }));
+    if (!members[0].sendsInRanges()) {
+      // parts split one recipient at a time can only be sent whole
+      pool.invoke(new PhaseTask(members.length,
+          i -> members[i].sendMessageParts(0, partLength)));
+      return;
+    }
+    pool.invoke(new PhaseTask(members.length * chunks,
+        i -> members[i / chunks].sendMessageParts(chunkStart(i % chunks),
+            chunkEnd(i % chunks, partLength))));
+  }
+
+  /**
+   * Receives and reassembles the oldest round in flight.
+   */
+  private void receive(Cryptographer[] members) {
+    var partLength = members[0].getPartLength();
+    var chunks = Math.max(1, ceilDiv(partLength, CHUNK_SIZE));
+    pool.invoke(new PhaseTask(members.length * chunks,
+        i -> members[i / chunks].receiveMessageParts(
+            chunkStart(i % chunks), chunkEnd(i % chunks, partLength))));
+    pool.invoke(new PhaseTask(members.length,
+        i -> members[i].reassembleMessage()));
+    roundCompleted();
+  }
+
+  private static int chunkStart(int chunk) {
+    return chunk * CHUNK_SIZE;
+  }
+
+  private static int chunkEnd(int chunk, int partLength) {
+    return Math.min(partLength, (chunk + 1) * CHUNK_SIZE);
+  }
+
+  private static int ceilDiv(int a, int b) {
+    return (a + b - 1) / b;
+  }
+
+  /**
+   * Executes an action for each index of a range, splitting the range in
+   * halves until single indices remain.
+   */
+  private static class PhaseTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final IntConsumer action;
+
+    PhaseTask(int count, IntConsumer action) {
+      this(0, count, action);
+    }
+
+    private PhaseTask(int from, int to, IntConsumer action) {
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= 1) {
+        if (to > from) {
+          action.accept(from);
+        }
+        return;
+      }
+      var mid = (from + to) >>> 1;
+      invokeAll(new PhaseTask(from, mid, action),
+          new PhaseTask(mid, to, action));
+    }
+  }
+}
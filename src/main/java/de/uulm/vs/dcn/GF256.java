@@ -0,0 +1,108 @@
+package de.uulm.vs.dcn;
+
+/**
+ * Arithmetic in GF(2^8) modulo the AES polynomial x^8 + x^4 + x^3 + x + 1, the
+ * field used by {@link com.codahale.shamir.Scheme}. Shares produced with
+ * either implementation can be combined by the other one.
+ *
+ * @author Juri Dispan
+ *
+ */
+final class GF256 {
+  /**
+   * exp(i) for i in [0, 510), so that the sum of two logarithms needs no
+   * reduction.
+   */
+  private static final byte[] EXP = new byte[510];
+  private static final int[] LOG = new int[256];
+
+  /**
+   * The full multiplication table, {@code MUL[a << 8 | b] == mul(a, b)}. Row
+   * {@code a} is a lookup table for multiplying by the constant {@code a}.
+   */
+  static final byte[] MUL = new byte[256 * 256];
+
+  static {
+    // 3 generates the multiplicative group
+    var x = 1;
+    for (var i = 0; i < 255; i++) {
+      EXP[i] = (byte) x;
+      EXP[i + 255] = (byte) x;
+      LOG[x] = i;
+      x ^= x << 1;
+      if ((x & 0x100) != 0) {
+        x ^= 0x11b;
+      }
+    }
+    for (var a = 1; a < 256; a++) {
+      for (var b = 1; b < 256; b++) {
+        MUL[a << 8 | b] = EXP[LOG[a] + LOG[b]];
+      }
+    }
+  }
+
+  /**
+   * The kernel used for bulk operations. Kernels may use the tables above, so
+   * it has to be initialised after them.
+   */
+  static GF256Kernel KERNEL = GF256Kernel.select();
+
+  private GF256() {
+  }
+
+  static int mul(int a, int b) {
+    return MUL[(a & 0xff) << 8 | (b & 0xff)] & 0xff;
+  }
+
+  /**
+   * @throws ArithmeticException If {@code b} is 0.
+   */
+  static int div(int a, int b) {
+    a &= 0xff;
+    b &= 0xff;
+    if (b == 0) {
+      throw new ArithmeticException("Division by zero.");
+    }
+    return a == 0 ? 0 : EXP[LOG[a] + 255 - LOG[b]] & 0xff;
+  }
+
+  /**
+   * @return {@code x} to the power of {@code e}.
+   */
+  static int pow(int x, int e) {
+    x &= 0xff;
+    if (e == 0) {
+      return 1;
+    }
+    return x == 0 ? 0 : EXP[(LOG[x] * e) % 255] & 0xff;
+  }
+
+  /**
+   * Computes the Lagrange coefficient of the {@code i}-th point for
+   * interpolating at 0.
+   *
+   * @param points Pairwise distinct, non-zero points.
+   * @param count  The number of points to consider.
+   */
+  static int lagrangeAtZero(int[] points, int count, int i) {
+    return lagrange(points, count, i, 0);
+  }
+
+  /**
+   * Computes the Lagrange coefficient of the {@code i}-th point for
+   * interpolating at {@code x}.
+   *
+   * @param points Pairwise distinct points.
+   * @param count  The number of points to consider.
+   */
+  static int lagrange(int[] points, int count, int i, int x) {
+    var li = 1;
+    var xi = points[i];
+    for (var m = 0; m < count; m++) {
+      if (m != i) {
+        li = mul(li, div(points[m] ^ x, points[m] ^ xi));
+      }
+    }
+    return li;
+  }
+}
@@ -0,0 +1,79 @@
+package de.uulm.vs.dcn;
+
+/**
+ * Bulk multiplication of byte arrays by a constant in {@link GF256}. Shamir's
+ * scheme spends nearly all of its time here: splitting multiplies every random
+ * coefficient by a power of the point, combining multiplies every part by its
+ * Lagrange coefficient.
+ *
+ * @author Juri Dispan
+ *
+ */
+public interface GF256Kernel {
+  /**
+   * The system property which can be used to choose a kernel by name instead
+   * of letting {@link GF256Kernel#select()} decide.
+   */
+  String PROPERTY = "dcn.gf256";
+
+  /**
+   * Overwrites {@code len} bytes of {@code dst}, starting at {@code dstOff},
+   * with the product of {@code c} and the bytes of {@code src}, starting at
+   * {@code srcOff}.
+   */
+  void mul(byte[] dst, int dstOff, byte[] src, int srcOff, int len, int c);
+
+  /**
+   * XORs the product of {@code c} and {@code len} bytes of {@code src},
+   * starting at {@code srcOff}, into {@code dst}, starting at {@code dstOff}.
+   */
+  void mulAdd(byte[] dst, int dstOff, byte[] src, int srcOff, int len, int c);
+
+  String getName();
+
+  /**
+   * Chooses the kernel named by the {@value GF256Kernel#PROPERTY} system
+   * property, or else the {@code VectorGF256Kernel} if it is available and the
+   * {@link TableGF256Kernel} if not. The vector kernel is compiled from a
+   * separate source set on JDK 16 and later, and it needs the JVM to be
+   * started with {@code --add-modules jdk.incubator.vector}.
+   *
+   * @throws IllegalArgumentException If the system property names an unknown
+   *                                  or unavailable kernel.
+   */
+  static GF256Kernel select() {
+    var name = System.getProperty(PROPERTY);
+    if (name == null) {
+      var vector = loadVector();
+      return vector != null ? vector : new TableGF256Kernel();
+    }
+    switch (name) {
+    case TableGF256Kernel.NAME:
+      return new TableGF256Kernel();
+    case "vector":
+      var vector = loadVector();
+      if (vector == null) {
+        throw new IllegalArgumentException(
+            "The vector GF(256) kernel needs --add-modules jdk.incubator.vector.");
+      }
+      return vector;
+    default:
+      throw new IllegalArgumentException("Unknown GF(256) kernel: " + name);
+    }
+  }
+
+  /**
+   * Loads the {@code VectorGF256Kernel} by reflection, since it is not part of
+   * the main source set.
+   *
+   * @return null if the kernel is missing or can't run on this JVM.
+   */
+  private static GF256Kernel loadVector() {
+    try {
+      return (GF256Kernel) Class.forName("de.uulm.vs.dcn.VectorGF256Kernel")
+          .getConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+}
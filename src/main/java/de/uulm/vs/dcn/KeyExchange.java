@@ -0,0 +1,58 @@
+package de.uulm.vs.dcn;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * How two cryptographers agree on the seed of their
+ * {@link SharedSecretGenerator}. A {@link DCNetwork} runs the agreements of
+ * different pairs concurrently, so implementations have to be thread-safe.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public interface KeyExchange {
+  /**
+   * Agrees on a seed both cryptographers know, but nobody else.
+   * 
+   * @return {@value SharedSecretGenerator#SEED_LENGTH} seed bytes.
+   */
+  byte[] agree(Cryptographer c1, Cryptographer c2);
+
+  /**
+   * The available kinds of key exchanges.
+   */
+  enum Kind {
+    /**
+     * Both cryptographers draw a random number from {@link Random} and the
+     * seed is derived from their product. Cheap, but nothing is kept secret.
+     * This is the baseline.
+     */
+    RANDOM,
+    /**
+     * {@link X25519KeyExchange}, Diffie-Hellman on Curve25519.
+     */
+    X25519;
+
+    public KeyExchange create() {
+      switch (this) {
+      case RANDOM:
+        return (c1, c2) -> SharedSecretGenerator
+            .expandSeed(new Random().nextLong() * new Random().nextLong());
+      case X25519:
+        return new X25519KeyExchange();
+      default:
+        throw new AssertionError(this);
+      }
+    }
+
+    /**
+     * Parses names like {@code x25519} or {@code X25519}.
+     * 
+     * @throws IllegalArgumentException If there is no such kind.
+     */
+    public static Kind parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+  }
+}
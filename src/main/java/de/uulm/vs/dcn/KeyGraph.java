@@ -0,0 +1,289 @@
+package de.uulm.vs.dcn;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Decides which members of a {@link DCNetwork} share a secret. Every member
+ * XORs one pad per neighbour into its parts each round, so sparse graphs make
+ * rounds cheaper. In exchange, an observer colluding with all neighbours of a
+ * sender can tell the sender apart from the rest of the network: the
+ * anonymity set of a member is bounded by its honest neighbours.
+ * <p>
+ * The other graphs are connected and take an even degree d. Unless n is
+ * small, every member then has exactly d neighbours.
+ *
+ * @author Juri Dispan
+ *
+ */
+public interface KeyGraph {
+  /**
+   * Computes the neighbours of every member. The graph must be undirected and
+   * must not contain loops.
+   *
+   * @param n The number of members.
+   * @return The numbers - 1 of the neighbours of each member, indexed by the
+   *         member's number - 1, in ascending order.
+   */
+  int[][] neighbours(int n);
+
+  /**
+   * Every member shares a secret with every other member. This is the
+   * original DCN and the default.
+   */
+  static KeyGraph complete() {
+    return n -> {
+      var neighbours = new int[n][n - 1];
+      for (var i = 0; i < n; i++) {
+        for (var j = 0; j < n - 1; j++) {
+          neighbours[i][j] = j < i ? j : j + 1;
+        }
+      }
+      return neighbours;
+    };
+  }
+
+  /**
+   * Every member shares a secret with the d / 2 members before and after it.
+   * Becomes complete if d is at least n - 1.
+   *
+   * @throws IllegalArgumentException If d is not even and positive.
+   */
+  static KeyGraph ring(int degree) {
+    checkDegree(degree);
+    return n -> {
+      var offsets = new int[Math.min(degree / 2, n / 2)];
+      Arrays.setAll(offsets, i -> i + 1);
+      return circulant(n, offsets);
+    };
+  }
+
+  /**
+   * A random graph, see {@link KeyGraph#random(int, long)}, of degree at least
+   * four. Such graphs are expanders with high probability: their second
+   * largest eigenvalue is close to {@code 2 * sqrt(d - 1)}, the least possible
+   * for large n. In contrast to a ring, every member can then be reached in a
+   * number of hops logarithmic in n, and the graph remains well connected if
+   * members are removed.
+   *
+   * @param seed Seeds the choice of the graph, so that all members agree on
+   *             the same graph.
+   * @throws IllegalArgumentException If d is not even and at least four.
+   */
+  static KeyGraph expander(int degree, long seed) {
+    checkDegree(degree);
+    if (degree < 4) {
+      throw new IllegalArgumentException(
+          "Expanders need a degree of at least 4, got " + degree + ".");
+    }
+    return random(degree, seed);
+  }
+
+  /**
+   * A random d-regular graph: the union of d / 2 Hamiltonian cycles through
+   * the members in random order. Where a cycle would repeat an edge of the
+   * previous ones, members are swapped within the cycle until it does not. If
+   * that fails, which has only been seen for d above 2n / 3, the edge is kept
+   * once and its members have fewer than d neighbours. Becomes complete if d
+   * is at least n - 1.
+   *
+   * @param seed Seeds the choice of the graph, so that all members agree on
+   *             the same graph.
+   * @throws IllegalArgumentException If d is not even and positive.
+   */
+  static KeyGraph random(int degree, long seed) {
+    checkDegree(degree);
+    return n -> {
+      if (degree >= n - 1) {
+        return complete().neighbours(n);
+      }
+      var random = new Random(seed);
+      var edges = new HashSet<Long>();
+      var cycle = new int[n];
+      for (var c = 0; c < degree / 2; c++) {
+        Arrays.setAll(cycle, i -> i);
+        shuffle(cycle, random);
+        avoidEdges(cycle, edges, random);
+        for (var j = 0; j < n; j++) {
+          edges.add(edge(n, cycle[j], cycle[(j + 1) % n]));
+        }
+      }
+
+      var neighbours = new int[n][];
+      var counts = new int[n];
+      for (var e : edges) {
+        counts[(int) (e / n)]++;
+        counts[(int) (e % n)]++;
+      }
+      for (var i = 0; i < n; i++) {
+        neighbours[i] = new int[counts[i]];
+        counts[i] = 0;
+      }
+      for (var e : edges) {
+        var a = (int) (e / n);
+        var b = (int) (e % n);
+        neighbours[a][counts[a]++] = b;
+        neighbours[b][counts[b]++] = a;
+      }
+      for (var row : neighbours) {
+        Arrays.sort(row);
+      }
+      return neighbours;
+    };
+  }
+
+  /**
+   * Swaps members of the cycle until none of its edges is contained in
+   * {@code edges}, giving up after 1000 passes over the cycle. A swap is kept
+   * unless it adds to the repeated edges.
+   */
+  private static void avoidEdges(int[] cycle, Set<Long> edges,
+      Random random) {
+    var n = cycle.length;
+    for (var pass = 0; pass < 1000; pass++) {
+      var repeated = false;
+      for (var j = 0; j < n; j++) {
+        if (!repeats(cycle, j, edges)) {
+          continue;
+        }
+        repeated = true;
+        var a = (j + 1) % n;
+        var b = random.nextInt(n);
+        // the edges ending or starting at a and b
+        var affected = new int[] { j, a, (b + n - 1) % n, b };
+        var before = countRepeats(cycle, affected, edges);
+        swap(cycle, a, b);
+        if (countRepeats(cycle, affected, edges) > before) {
+          swap(cycle, a, b);
+        }
+      }
+      if (!repeated) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return Whether the edge from position {@code j} of the cycle to the next
+   *         one is contained in {@code edges}.
+   */
+  private static boolean repeats(int[] cycle, int j, Set<Long> edges) {
+    var n = cycle.length;
+    return edges.contains(edge(n, cycle[j], cycle[(j + 1) % n]));
+  }
+
+  private static int countRepeats(int[] cycle, int[] positions,
+      Set<Long> edges) {
+    var count = 0;
+    for (var p = 0; p < positions.length; p++) {
+      var duplicate = false;
+      for (var q = 0; q < p; q++) {
+        duplicate |= positions[q] == positions[p];
+      }
+      if (!duplicate && repeats(cycle, positions[p], edges)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return A key of the undirected edge between members a and b.
+   */
+  private static long edge(int n, int a, int b) {
+    return (long) Math.min(a, b) * n + Math.max(a, b);
+  }
+
+  /**
+   * Connects every member to the members whose numbers differ by one of the
+   * offsets, modulo n.
+   */
+  private static int[][] circulant(int n, int[] offsets) {
+    var neighbours = new int[n][];
+    for (var i = 0; i < n; i++) {
+      var set = new TreeSet<Integer>();
+      for (var offset : offsets) {
+        var o = offset % n;
+        if (o != 0) {
+          set.add((i + o) % n);
+          set.add((i - o + n) % n);
+        }
+      }
+      neighbours[i] = set.stream().mapToInt(Integer::intValue).toArray();
+    }
+    return neighbours;
+  }
+
+  private static void shuffle(int[] values, Random random) {
+    for (var i = values.length - 1; i > 0; i--) {
+      swap(values, i, random.nextInt(i + 1));
+    }
+  }
+
+  private static void swap(int[] values, int i, int j) {
+    var tmp = values[i];
+    values[i] = values[j];
+    values[j] = tmp;
+  }
+
+  private static void checkDegree(int degree) {
+    if (degree < 2 || degree % 2 != 0) {
+      throw new IllegalArgumentException(
+          "Degree must be even and positive, got " + degree + ".");
+    }
+  }
+
+  /**
+   * The available kinds of key graphs.
+   */
+  enum Kind {
+    /**
+     * {@link KeyGraph#complete()}.
+     */
+    COMPLETE,
+    /**
+     * {@link KeyGraph#ring(int)}.
+     */
+    RING,
+    /**
+     * {@link KeyGraph#random(int, long)}.
+     */
+    RANDOM,
+    /**
+     * {@link KeyGraph#expander(int, long)}.
+     */
+    EXPANDER;
+
+    /**
+     * @param degree The degree of the graph, ignored by {@link Kind#COMPLETE}.
+     * @param seed   The seed of random graphs.
+     */
+    public KeyGraph create(int degree, long seed) {
+      switch (this) {
+      case COMPLETE:
+        return complete();
+      case RING:
+        return ring(degree);
+      case RANDOM:
+        return random(degree, seed);
+      case EXPANDER:
+        return expander(degree, seed);
+      default:
+        throw new AssertionError(this);
+      }
+    }
+
+    /**
+     * Parses names like {@code ring} or {@code RING}.
+     *
+     * @throws IllegalArgumentException If there is no such kind.
+     */
+    public static Kind parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+  }
+}
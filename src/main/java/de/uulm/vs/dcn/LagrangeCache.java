@@ -0,0 +1,139 @@
+package de.uulm.vs.dcn;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches Lagrange bases over {@link GF256}. A cryptographer combines the parts
+ * of the same sharing partners every round, so the basis only has to be
+ * computed once per set of points and reconstruction becomes a dot product
+ * with fixed coefficients.
+ *
+ * @author Juri Dispan
+ *
+ */
+final class LagrangeCache {
+  /**
+   * Upper bound of cached point sets. Further sets are computed on every call.
+   */
+  private static final int MAX_ENTRIES = 4096;
+
+  private static final ConcurrentHashMap<PointSet, int[]> CACHE =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Reused for lookups, so that cache hits do not allocate.
+   */
+  private static final ThreadLocal<PointSet> PROBE =
+      ThreadLocal.withInitial(PointSet::new);
+
+  private LagrangeCache() {
+  }
+
+  /**
+   * Returns the Lagrange basis at 0 for the specified points.
+   *
+   * @see LagrangeCache#basis(int[], int, int)
+   */
+  static int[] basis(int[] points, int count) {
+    return basis(points, count, 0);
+  }
+
+  /**
+   * Returns the Lagrange basis at {@code x} for the specified points. The
+   * result is indexed by point and must not be modified.
+   *
+   * @param points The points, pairwise distinct and in [1, 255].
+   * @param count  The number of points to consider.
+   * @param x      The point to interpolate at.
+   * @throws IllegalArgumentException If the points are invalid.
+   */
+  static int[] basis(int[] points, int count, int x) {
+    var probe = PROBE.get();
+    probe.set(points, count, x);
+    var basis = CACHE.get(probe);
+    if (basis == null) {
+      basis = new int[256];
+      for (var i = 0; i < count; i++) {
+        basis[points[i]] = GF256.lagrange(points, count, i, x);
+      }
+      if (CACHE.size() < MAX_ENTRIES) {
+        CACHE.putIfAbsent(probe.copy(), basis);
+      }
+    }
+    return basis;
+  }
+
+  /**
+   * Interpolates the shares at 0 into {@code out}, using the cached basis and
+   * {@link GF256#KERNEL}.
+   *
+   * @param points The points of the shares, pairwise distinct and in [1, 255].
+   * @param shares The shares, at least {@code out.length} bytes each. Must not
+   *               alias {@code out}.
+   * @param count  The number of shares to combine.
+   * @param out    Receives the interpolated bytes.
+   */
+  static void interpolate(int[] points, byte[][] shares, int count,
+      byte[] out) {
+    interpolate(points, shares, count, 0, out);
+  }
+
+  /**
+   * Interpolates the shares at {@code x} into {@code out}.
+   *
+   * @see LagrangeCache#interpolate(int[], byte[][], int, byte[])
+   */
+  static void interpolate(int[] points, byte[][] shares, int count, int x,
+      byte[] out) {
+    var basis = basis(points, count, x);
+    Arrays.fill(out, (byte) 0);
+    for (var i = 0; i < count; i++) {
+      GF256.KERNEL.mulAdd(out, 0, shares[i], 0, out.length, basis[points[i]]);
+    }
+  }
+
+  /**
+   * A set of points in [1, 255] as a 256 bit mask, and the point to
+   * interpolate at.
+   */
+  private static final class PointSet {
+    private final long[] mask = new long[4];
+    private int x;
+
+    private void set(int[] points, int count, int x) {
+      this.x = x;
+      Arrays.fill(mask, 0);
+      for (var i = 0; i < count; i++) {
+        var point = points[i];
+        if (point < 1 || point > 255) {
+          throw new IllegalArgumentException("Invalid point " + point + ".");
+        }
+        var bit = 1L << point;
+        if ((mask[point >>> 6] & bit) != 0) {
+          throw new IllegalArgumentException(
+              "Points must be pairwise distinct.");
+        }
+        mask[point >>> 6] |= bit;
+      }
+    }
+
+    private PointSet copy() {
+      var copy = new PointSet();
+      System.arraycopy(mask, 0, copy.mask, 0, mask.length);
+      copy.x = x;
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof PointSet && x == ((PointSet) obj).x
+          && Arrays.equals(mask, ((PointSet) obj).mask);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(mask) + x;
+    }
+  }
+}
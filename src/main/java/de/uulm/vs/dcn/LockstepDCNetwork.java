@@ -0,0 +1,119 @@
+package de.uulm.vs.dcn;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A DCN whose members are driven in lockstep by a single thread. Each round,
+ * every member executes the first phase of the protocol, then every member
+ * the second and then every member the last one. No barriers or other
+ * synchronisation between members are needed, so the results are
+ * reproducible and free of synchronisation overhead. The artificial
+ * {@link Cryptographer#DELAY} is applied once per round, as all members would
+ * wait for the network at the same time. With {@link Cryptographer#PIPELINE},
+ * the next round is sent during the delay of the current one.
+ * <p>
+ * The synchroniser and thread mode of {@link DCNetwork} are ignored.
+ * 
+ * @author Juri Dispan
+ */
+public class LockstepDCNetwork extends DCNetwork {
+  private static final Logger LOGGER =
+      Logger.getLogger(LockstepDCNetwork.class.getName());
+
+  static {
+    LOGGER.setLevel(Level.OFF);
+  }
+
+  private volatile boolean stopRequested;
+  private Thread driver;
+
+  /**
+   * Constructs a DCN.
+   * 
+   * @param k The number of message parts needed to reconstruct a message. This
+   *          is needed for assigning message part sharing partners.
+   */
+  public LockstepDCNetwork(int k) {
+    super(k);
+  }
+
+  @Override
+  protected void launch(Cryptographer[] members) {
+    prepare(members, null, Thread::new);
+    // launched again after members joined or left
+    stopRequested = false;
+    driver = new Thread(() -> drive(members));
+    driver.start();
+  }
+
+  @Override
+  protected void halt() {
+    stopRequested = true;
+    try {
+      driver.join();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void drive(Cryptographer[] members) {
+    try {
+      if (members[0].isPipelined()) {
+        drivePipelined(members);
+        return;
+      }
+      while (!stopRequested) {
+        send(members);
+        Cryptographer.simulateDelay();
+        receive(members);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.severe("Interrupted while amidst the protocol");
+    }
+  }
+
+  /**
+   * Sends every round before the previous one is received. The round sent last
+   * is completed after stopping, so that no dequeued bytes are lost.
+   */
+  private void drivePipelined(Cryptographer[] members)
+      throws InterruptedException {
+    send(members);
+    var inFlightSince = System.nanoTime();
+    while (true) {
+      var stopping = stopRequested;
+      var sentSince = 0L;
+      if (!stopping) {
+        send(members);
+        sentSince = System.nanoTime();
+      }
+      Cryptographer.simulateDelay(inFlightSince);
+      receive(members);
+      if (stopping) {
+        return;
+      }
+      inFlightSince = sentSince;
+    }
+  }
+
+  private static void send(Cryptographer[] members)
+      throws InterruptedException {
+    for (var cryptographer : members) {
+      cryptographer.sendMessageParts();
+    }
+  }
+
+  /**
+   * Receives and reassembles the oldest round in flight.
+   */
+  private void receive(Cryptographer[] members) {
+    for (var cryptographer : members) {
+      cryptographer.receiveMessageParts();
+    }
+    for (var cryptographer : members) {
+      cryptographer.reassembleMessage();
+    }
+    roundCompleted();
+  }
+}
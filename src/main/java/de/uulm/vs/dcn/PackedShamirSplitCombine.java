@@ -0,0 +1,224 @@
+package de.uulm.vs.dcn;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Packed Shamir secret sharing, a ramp scheme over GF(256). Every polynomial of
+ * degree k - 1 carries l message bytes instead of one, so each part is only
+ * 1/l of the message long. The price is privacy: any k parts reconstruct the
+ * message, but only up to k - l parts are guaranteed to reveal nothing about
+ * it. With l = 1 this is ordinary Shamir secret sharing.
+ * <p>
+ * The message is cut into l segments of equal length. Byte c of segment j is
+ * the value of the polynomial at the point {@code n + 1 + j}, the values at the
+ * points 1 to k - l are random, and the parts are the values at the points 1
+ * to n. So the first k - l parts are drawn at random and the others are
+ * interpolated with fixed coefficients.
+ * <p>
+ * Instances may be shared between threads: every thread draws its random
+ * parts from its own {@link SecureRandom}.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class PackedShamirSplitCombine extends SplitCombineStrategy {
+  /**
+   * The number of message bytes per byte of a part.
+   */
+  private final int l;
+
+  /**
+   * The coefficient of node {@code m} when interpolating the part at point
+   * {@code x > k - l}, at index {@code (x - 1) * k + m}. Nodes 0 to k - l - 1
+   * are the random points, the others the points of the segments.
+   */
+  private final int[] splitBasis;
+
+  /**
+   * The points the segments are stored at.
+   */
+  private final int[] segmentPoints;
+
+  private final ThreadLocal<SecureRandom> random =
+      ThreadLocal.withInitial(SecureRandom::new);
+  private final ThreadLocal<byte[]> randomScratch =
+      ThreadLocal.withInitial(() -> new byte[0]);
+  private final ThreadLocal<byte[][]> randomParts =
+      ThreadLocal.withInitial(() -> new byte[0][]);
+
+  /**
+   * @param n The number of produced parts.
+   * @param k The number of parts needed to reconstruct a message.
+   * @param l The number of message bytes packed into each polynomial.
+   * @throws IllegalArgumentException If not {@code 1 <= l <= k <= n} and
+   *                                  {@code n + l <= 255}.
+   */
+  public PackedShamirSplitCombine(int n, int k, int l) {
+    super(n, k);
+    if (l < 1 || k < l || n < k || n + l > 255) {
+      throw new IllegalArgumentException(
+          "Requires 1 <= l <= k <= n and n + l <= 255, got n=" + n + ", k=" + k
+              + ", l=" + l + ".");
+    }
+    this.l = l;
+
+    var t = k - l;
+    var nodes = new int[k];
+    segmentPoints = new int[l];
+    for (var m = 0; m < t; m++) {
+      nodes[m] = m + 1;
+    }
+    for (var j = 0; j < l; j++) {
+      segmentPoints[j] = n + 1 + j;
+      nodes[t + j] = segmentPoints[j];
+    }
+    splitBasis = new int[n * k];
+    for (var x = t + 1; x <= n; x++) {
+      for (var m = 0; m < k; m++) {
+        splitBasis[(x - 1) * k + m] = GF256.lagrange(nodes, k, m, x);
+      }
+    }
+  }
+
+  @Override
+  public PackedShamirSplitCombine resize(int n) {
+    return new PackedShamirSplitCombine(n, k, l);
+  }
+
+  /**
+   * @return The number of message bytes packed into each polynomial.
+   */
+  public int getPackingFactor() {
+    return l;
+  }
+
+  @Override
+  public int partLength(int msgLength) {
+    return (msgLength + l - 1) / l;
+  }
+
+  @Override
+  public List<MessagePart> split(byte[] msg) {
+    var shares = new byte[n][partLength(msg.length)];
+    split(msg, shares);
+    var list = new ArrayList<MessagePart>(n);
+    for (var i = 0; i < n; i++) {
+      list.add(new MessagePart(i + 1, shares[i]));
+    }
+    return list;
+  }
+
+  @Override
+  public void split(byte[] msg, byte[][] shares) {
+    var partLength = partLength(msg.length);
+    var t = k - l;
+    for (var x = 1; x <= t; x++) {
+      randomBytes(shares[x - 1], partLength);
+    }
+    for (var x = t + 1; x <= n; x++) {
+      interpolate(msg, shares, x, shares[x - 1], partLength);
+    }
+  }
+
+  /**
+   * Hands out the parts one at a time, keeping the k - l random parts.
+   */
+  @Override
+  public void split(byte[] msg, byte[] part, ObjIntConsumer<byte[]> consumer) {
+    var partLength = partLength(msg.length);
+    var t = k - l;
+    var drawn = randomParts.get();
+    if (drawn.length != t || t > 0 && drawn[0].length != partLength) {
+      drawn = new byte[t][partLength];
+      randomParts.set(drawn);
+    }
+    for (var x = 1; x <= t; x++) {
+      random.get().nextBytes(drawn[x - 1]);
+      System.arraycopy(drawn[x - 1], 0, part, 0, partLength);
+      consumer.accept(part, x - 1);
+    }
+    for (var x = t + 1; x <= n; x++) {
+      interpolate(msg, drawn, x, part, partLength);
+      consumer.accept(part, x - 1);
+    }
+  }
+
+  /**
+   * Writes the part at point {@code x > k - l} to {@code share}.
+   *
+   * @param drawn The parts at the points 1 to k - l.
+   */
+  private void interpolate(byte[] msg, byte[][] drawn, int x,
+      byte[] share, int partLength) {
+    var t = k - l;
+    Arrays.fill(share, 0, partLength, (byte) 0);
+    var coefficients = (x - 1) * k;
+    for (var m = 0; m < t; m++) {
+      GF256.KERNEL.mulAdd(share, 0, drawn[m], 0, partLength,
+          splitBasis[coefficients + m]);
+    }
+    // the last segment may be short, its missing bytes are zero
+    for (var j = 0; j < l; j++) {
+      var from = j * partLength;
+      var len = Math.max(0, Math.min(partLength, msg.length - from));
+      GF256.KERNEL.mulAdd(share, 0, msg, from, len,
+          splitBasis[coefficients + t + j]);
+    }
+  }
+
+  /**
+   * Combines the parts into a message of {@code l} times the length of a part.
+   */
+  @Override
+  public byte[] combine(List<MessagePart> msgs) {
+    var count = msgs.size();
+    if (count == 0) {
+      throw new IllegalArgumentException("No parts to combine.");
+    }
+    var points = new int[count];
+    var shares = new byte[count][];
+    for (var i = 0; i < count; i++) {
+      points[i] = msgs.get(i).getPoint();
+      shares[i] = msgs.get(i).getContent();
+    }
+    var out = new byte[shares[0].length * l];
+    combine(points, shares, count, out);
+    return out;
+  }
+
+  /**
+   * Combines the parts into {@code out}. Only the first k parts are used.
+   */
+  @Override
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    var partLength = partLength(out.length);
+    count = Math.min(count, k);
+    Arrays.fill(out, (byte) 0);
+    for (var j = 0; j < l; j++) {
+      var basis = LagrangeCache.basis(points, count, segmentPoints[j]);
+      var from = j * partLength;
+      var len = Math.max(0, Math.min(partLength, out.length - from));
+      for (var i = 0; i < count; i++) {
+        GF256.KERNEL.mulAdd(out, from, parts[i], 0, len, basis[points[i]]);
+      }
+    }
+  }
+
+  private void randomBytes(byte[] dst, int len) {
+    if (dst.length == len) {
+      random.get().nextBytes(dst);
+      return;
+    }
+    var scratch = randomScratch.get();
+    if (scratch.length != len) {
+      scratch = new byte[len];
+      randomScratch.set(scratch);
+    }
+    random.get().nextBytes(scratch);
+    System.arraycopy(scratch, 0, dst, 0, len);
+  }
+}
@@ -0,0 +1,47 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.Phaser;
+
+/**
+ * A {@link RoundSynchronizer} based on {@link Phaser}s. Stopping is done by
+ * terminating the phaser ending the rounds.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class PhaserSynchronizer implements RoundSynchronizer {
+  private final Phaser phasePhaser;
+  private final Phaser roundPhaser;
+
+  private volatile boolean terminateRequested;
+
+  public PhaserSynchronizer(int parties) {
+    this.phasePhaser = new Phaser(parties);
+    this.roundPhaser = new Phaser(parties) {
+      @Override
+      protected boolean onAdvance(int phase, int registeredParties) {
+        return terminateRequested || super.onAdvance(phase, registeredParties);
+      }
+    };
+  }
+
+  @Override
+  public void awaitPhase() throws InterruptedException {
+    awaitAdvance(phasePhaser);
+  }
+
+  @Override
+  public boolean awaitRound() throws InterruptedException {
+    awaitAdvance(roundPhaser);
+    return !roundPhaser.isTerminated();
+  }
+
+  @Override
+  public void terminate() {
+    terminateRequested = true;
+  }
+
+  private static void awaitAdvance(Phaser phaser) throws InterruptedException {
+    phaser.awaitAdvanceInterruptibly(phaser.arrive());
+  }
+}
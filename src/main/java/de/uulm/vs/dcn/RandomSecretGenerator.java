@@ -0,0 +1,33 @@
+package de.uulm.vs.dcn;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * A {@link SharedSecretGenerator} backed by {@link Random}.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class RandomSecretGenerator implements SharedSecretGenerator {
+  private final Random random;
+
+  public RandomSecretGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  public RandomSecretGenerator(byte[] seed) {
+    this(ByteBuffer.wrap(seed).getLong());
+  }
+
+  @Override
+  public void nextBytes(byte[] dst, int off, int len) {
+    // same as Random#nextBytes, but for a range
+    for (var i = 0; i < len;) {
+      for (int rnd = random.nextInt(), n = Math.min(len - i, Integer.BYTES);
+          n-- > 0; rnd >>= Byte.SIZE) {
+        dst[off + i++] = (byte) rnd;
+      }
+    }
+  }
+}
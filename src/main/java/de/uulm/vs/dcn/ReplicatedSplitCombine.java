@@ -0,0 +1,282 @@
+package de.uulm.vs.dcn;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Replicated secret sharing, a threshold scheme using nothing but XOR. The
+ * message is split into one random share per set of k - 1 members, XORing to
+ * the message, and every member gets all shares of the sets it does not belong
+ * to. Any k members together hold every share, whereas k - 1 members lack the
+ * share of their own set.
+ * <p>
+ * A part consists of {@code C(n - 1, k - 1)} shares, so parts grow quickly with
+ * n and k. Splitting and combining are several times faster than with
+ * {@link FastShamirSplitCombine}, but every member also generates pads and
+ * sends parts of {@code C(n - 1, k - 1)} times the length. Measured per round
+ * at 8192 bytes per round, this only pays off while {@code C(n - 1, k - 1)}
+ * stays below about 10, e.g. n &lt;= 6 with k &lt;= 3; at n = 8, k = 3 a round
+ * takes twice as long as with {@link FastShamirSplitCombine}, at n = 10, k = 5
+ * ten times. All XOR operations are done by {@link Cryptographer#XOR_KERNEL}.
+ * <p>
+ * Instances may be shared between threads: every thread draws its shares from
+ * its own AES-CTR key stream, keyed from a {@link SecureRandom}.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class ReplicatedSplitCombine extends SplitCombineStrategy {
+  /**
+   * Upper bound for the number of shares a message is split into.
+   */
+  private static final int MAX_SHARES = 1 << 12;
+
+  /**
+   * The number of shares each member holds.
+   */
+  private final int sharesPerPart;
+
+  /**
+   * The slot of share {@code s} in the part of member {@code i}, at index
+   * {@code i * shares + s}, or -1 if the member does not hold it.
+   */
+  private final int[] slots;
+
+  /**
+   * The members holding share {@code s}, at {@code holders[s]}.
+   */
+  private final int[][] holders;
+
+  /**
+   * Per thread, the key stream the shares are drawn from, keyed once from a
+   * {@link SecureRandom}.
+   */
+  private static final ThreadLocal<Local> LOCAL =
+      ThreadLocal.withInitial(Local::new);
+
+  /**
+   * @throws IllegalArgumentException If not {@code 1 <= k <= n <= 30}, or if
+   *                                  the message would be split into too many
+   *                                  shares.
+   */
+  public ReplicatedSplitCombine(int n, int k) {
+    super(n, k);
+    if (k < 1 || n < k || n > 30) {
+      throw new IllegalArgumentException(
+          "Requires 1 <= k <= n <= 30, got n=" + n + ", k=" + k + ".");
+    }
+    if (binomial(n, k - 1) > MAX_SHARES) {
+      throw new IllegalArgumentException(
+          "Too many shares for n=" + n + ", k=" + k + ".");
+    }
+
+    // every set of k - 1 members, as bit masks in increasing order
+    var sets = new ArrayList<Integer>();
+    for (var set = (1 << (k - 1)) - 1; set < 1 << n; set = nextSet(set)) {
+      sets.add(set);
+      if (set == 0) {
+        break;
+      }
+    }
+    var shares = sets.size();
+    sharesPerPart = (int) binomial(n - 1, k - 1);
+    slots = new int[n * shares];
+    holders = new int[shares][];
+    Arrays.fill(slots, -1);
+    var used = new int[n];
+    for (var s = 0; s < shares; s++) {
+      holders[s] = new int[n - (k - 1)];
+      var h = 0;
+      for (var i = 0; i < n; i++) {
+        if ((sets.get(s) & 1 << i) == 0) {
+          slots[i * shares + s] = used[i]++;
+          holders[s][h++] = i;
+        }
+      }
+    }
+  }
+
+  @Override
+  public ReplicatedSplitCombine resize(int n) {
+    return new ReplicatedSplitCombine(n, k);
+  }
+
+  @Override
+  public int partLength(int msgLength) {
+    return sharesPerPart * msgLength;
+  }
+
+  @Override
+  public List<MessagePart> split(byte[] msg) {
+    var parts = new byte[n][partLength(msg.length)];
+    split(msg, parts);
+    var list = new ArrayList<MessagePart>(n);
+    for (var i = 0; i < n; i++) {
+      list.add(new MessagePart(i + 1, parts[i]));
+    }
+    return list;
+  }
+
+  @Override
+  public void split(byte[] msg, byte[][] shares) {
+    var len = msg.length;
+    var last = holders.length - 1;
+    // the last share is the message XOR all others, it is accumulated in the
+    // slot of its first holder
+    var sum = shares[holders[last][0]];
+    var sumOff = slot(holders[last][0], last) * len;
+    System.arraycopy(msg, 0, sum, sumOff, len);
+
+    var random = LOCAL.get().random;
+    for (var s = 0; s < last; s++) {
+      // drawn into the slot of the first holder, copied to the others
+      var first = shares[holders[s][0]];
+      var off = slot(holders[s][0], s) * len;
+      random.nextBytes(first, off, len);
+      Cryptographer.XOR_KERNEL.xor(sum, sumOff, first, off, len);
+      for (var h = 1; h < holders[s].length; h++) {
+        var i = holders[s][h];
+        System.arraycopy(first, off, shares[i], slot(i, s) * len, len);
+      }
+    }
+    for (var h = 1; h < holders[last].length; h++) {
+      var i = holders[last][h];
+      System.arraycopy(sum, sumOff, shares[i], slot(i, last) * len, len);
+    }
+  }
+
+  /**
+   * Hands out the parts one at a time. The random shares are taken from the
+   * seekable key stream at their index, so that every holder gets the same
+   * share without keeping it; only the last share is kept. Every share is
+   * therefore generated once per holder.
+   */
+  @Override
+  public void split(byte[] msg, byte[] part, ObjIntConsumer<byte[]> consumer) {
+    var len = msg.length;
+    var last = holders.length - 1;
+    var local = LOCAL.get();
+    var first = local.nextShare;
+    local.nextShare += last;
+    var sum = local.sum(len);
+    System.arraycopy(msg, 0, sum, 0, len);
+    for (var s = 0; s < last; s++) {
+      local.random.roundBytes(first + s, part, 0, len);
+      Cryptographer.XOR_KERNEL.xor(sum, 0, part, 0, len);
+    }
+    for (var i = 0; i < n; i++) {
+      for (var s = 0; s < last; s++) {
+        var slot = slot(i, s);
+        if (slot >= 0) {
+          local.random.roundBytes(first + s, part, slot * len, len);
+        }
+      }
+      var slot = slot(i, last);
+      if (slot >= 0) {
+        System.arraycopy(sum, 0, part, slot * len, len);
+      }
+      consumer.accept(part, i);
+    }
+  }
+
+  /**
+   * Combines the parts into a message of {@code 1 / C(n - 1, k - 1)} times the
+   * length of a part.
+   */
+  @Override
+  public byte[] combine(List<MessagePart> msgs) {
+    var count = msgs.size();
+    if (count == 0) {
+      throw new IllegalArgumentException("No parts to combine.");
+    }
+    var points = new int[count];
+    var parts = new byte[count][];
+    for (var i = 0; i < count; i++) {
+      points[i] = msgs.get(i).getPoint();
+      parts[i] = msgs.get(i).getContent();
+    }
+    var out = new byte[parts[0].length / sharesPerPart];
+    combine(points, parts, count, out);
+    return out;
+  }
+
+  /**
+   * XORs every share, taken from the first part holding it.
+   *
+   * @throws IllegalArgumentException If the parts lack a share.
+   */
+  @Override
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    var len = out.length;
+    Arrays.fill(out, (byte) 0);
+    for (var s = 0; s < holders.length; s++) {
+      var found = false;
+      for (var p = 0; p < count && !found; p++) {
+        var slot = slot(points[p] - 1, s);
+        if (slot >= 0) {
+          Cryptographer.XOR_KERNEL.xor(out, 0, parts[p], slot * len, len);
+          found = true;
+        }
+      }
+      if (!found) {
+        throw new IllegalArgumentException(
+            "At least " + k + " parts are needed.");
+      }
+    }
+  }
+
+  private int slot(int member, int share) {
+    return slots[member * holders.length + share];
+  }
+
+  private static final class Local {
+    private final AesCtrSecretGenerator random;
+
+    /**
+     * The index of the next share taken from {@link Local#random} by
+     * {@link ReplicatedSplitCombine#split(byte[], byte[], ObjIntConsumer)}.
+     */
+    private long nextShare;
+
+    private byte[] sum = new byte[0];
+
+    private Local() {
+      var seed = new byte[32];
+      new SecureRandom().nextBytes(seed);
+      random = new AesCtrSecretGenerator(seed);
+    }
+
+    /**
+     * @return A buffer of {@code len} bytes for the last share.
+     */
+    private byte[] sum(int len) {
+      if (sum.length != len) {
+        sum = new byte[len];
+      }
+      return sum;
+    }
+  }
+
+  /**
+   * @return The next larger integer with the same number of set bits.
+   */
+  private static int nextSet(int set) {
+    if (set == 0) {
+      return 0;
+    }
+    var lowest = set & -set;
+    var ripple = set + lowest;
+    return ripple | ((set ^ ripple) >>> 2) / lowest;
+  }
+
+  private static long binomial(int n, int k) {
+    var result = 1L;
+    for (var i = 1; i <= k; i++) {
+      result = result * (n - k + i) / i;
+    }
+    return result;
+  }
+}
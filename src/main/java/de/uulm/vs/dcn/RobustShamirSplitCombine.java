@@ -0,0 +1,254 @@
+package de.uulm.vs.dcn;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link FastShamirSplitCombine} which tolerates corrupted parts when more
+ * than k parts are combined. Shamir parts are a Reed-Solomon code word, so up
+ * to {@code (count - k) / 2} corrupted parts can be corrected.
+ * <p>
+ * Combining interpolates the message from the first k parts and checks that
+ * the resulting polynomial also passes through the next part. Only if it does
+ * not, every byte is decoded with the Berlekamp-Welch algorithm, which finds
+ * the corrupted parts and interpolates from the remaining ones. With faults
+ * being rare, combining costs little more than a plain interpolation. Give the
+ * cryptographers spare sharing partners with
+ * {@link DCNetwork#setSpareSharingPartners(int)} to make use of it.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class RobustShamirSplitCombine extends FastShamirSplitCombine {
+  private final ThreadLocal<Scratch> scratch =
+      ThreadLocal.withInitial(Scratch::new);
+
+  private final LongAdder corrected = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  public RobustShamirSplitCombine(int n, int k) {
+    super(n, k);
+  }
+
+  @Override
+  public RobustShamirSplitCombine resize(int n) {
+    return new RobustShamirSplitCombine(n, k);
+  }
+
+  @Override
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    combineChecked(points, parts, count, out);
+  }
+
+  /**
+   * Combines the parts like {@link RobustShamirSplitCombine#combine}, but
+   * tells whether the result can be trusted.
+   *
+   * @return False if the parts are inconsistent and could not be corrected.
+   *         {@code out} then holds the message interpolated from the first k
+   *         parts. True otherwise, including if there are no more than k parts
+   *         and nothing could be checked.
+   */
+  public boolean combineChecked(int[] points, byte[][] parts, int count,
+      byte[] out) {
+    if (count <= k) {
+      LagrangeCache.interpolate(points, parts, count, out);
+      return true;
+    }
+    LagrangeCache.interpolate(points, parts, k, out);
+
+    // fast path: the next part has to lie on the same polynomial
+    var local = scratch.get().resize(count, out.length);
+    LagrangeCache.interpolate(points, parts, k, points[k], local.check);
+    if (Arrays.equals(local.check, 0, out.length, parts[k], 0, out.length)) {
+      return true;
+    }
+
+    var correctable = count >= k + 2;
+    for (var column = 0; correctable && column < out.length; column++) {
+      var value = decode(points, parts, count, column, local);
+      if (value < 0) {
+        correctable = false;
+      } else {
+        out[column] = (byte) value;
+      }
+    }
+    if (correctable) {
+      corrected.increment();
+    } else {
+      failed.increment();
+      LagrangeCache.interpolate(points, parts, k, out);
+    }
+    return correctable;
+  }
+
+  /**
+   * @return The number of combinations in which corrupted parts were
+   *         corrected.
+   */
+  public long getCorrectedCount() {
+    return corrected.sum();
+  }
+
+  /**
+   * @return The number of combinations in which corrupted parts were detected
+   *         but could not be corrected.
+   */
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * Decodes one byte of the message with the Berlekamp-Welch algorithm: with
+   * e = (count - k) / 2, find an error locator E of degree e and a polynomial
+   * Q of degree e + k - 1 with {@code Q(x) = y * E(x)} at every part. The
+   * corrupted parts are among the roots of E, so the message byte is
+   * interpolated from k parts that are no roots.
+   *
+   * @return The byte, or -1 if there are too many errors.
+   */
+  private int decode(int[] points, byte[][] parts, int count, int column,
+      Scratch local) {
+    var e = (count - k) / 2;
+    var qLen = e + k;
+    var cols = qLen + e;
+    var matrix = local.matrix;
+    for (var i = 0; i < count; i++) {
+      var x = points[i];
+      var y = parts[i][column] & 0xff;
+      var row = matrix[i];
+      var power = 1;
+      for (var t = 0; t < qLen; t++) {
+        row[t] = power;
+        if (t < e) {
+          row[qLen + t] = GF256.mul(y, power);
+        }
+        if (t == e) {
+          // E is monic, so its leading term goes to the right hand side
+          row[cols] = GF256.mul(y, power);
+        }
+        power = GF256.mul(power, x);
+      }
+    }
+    if (!solve(matrix, count, cols, local.solution, local.pivotCols)) {
+      return -1;
+    }
+
+    // evaluate E at every point, its roots may be corrupted
+    var good = local.good;
+    var goodCount = 0;
+    for (var i = 0; i < count && goodCount < k; i++) {
+      var x = points[i];
+      var value = 0;
+      var power = 1;
+      for (var t = 0; t < e; t++) {
+        value ^= GF256.mul(local.solution[qLen + t], power);
+        power = GF256.mul(power, x);
+      }
+      value ^= power;
+      if (value != 0) {
+        good[goodCount++] = i;
+      }
+    }
+    if (goodCount < k) {
+      return -1;
+    }
+
+    var goodPoints = local.goodPoints;
+    for (var i = 0; i < k; i++) {
+      goodPoints[i] = points[good[i]];
+    }
+    // the polynomial through the good parts must miss at most e parts
+    var misses = 0;
+    for (var i = 0; i < count; i++) {
+      var predicted = interpolate(goodPoints, good, parts, column, points[i]);
+      if (predicted != (parts[i][column] & 0xff)) {
+        misses++;
+      }
+    }
+    if (misses > e) {
+      return -1;
+    }
+    return interpolate(goodPoints, good, parts, column, 0);
+  }
+
+  private int interpolate(int[] goodPoints, int[] good, byte[][] parts,
+      int column, int x) {
+    var basis = LagrangeCache.basis(goodPoints, k, x);
+    var value = 0;
+    for (var i = 0; i < k; i++) {
+      value ^= GF256.mul(basis[goodPoints[i]], parts[good[i]][column]);
+    }
+    return value;
+  }
+
+  /**
+   * Solves the linear system in {@code matrix}, whose last column is the right
+   * hand side, by Gaussian elimination. Free variables are set to 0.
+   *
+   * @return False if the system has no solution.
+   */
+  private static boolean solve(int[][] matrix, int rows, int cols,
+      int[] solution, int[] pivotCols) {
+    var rank = 0;
+    for (var col = 0; col < cols && rank < rows; col++) {
+      var pivot = rank;
+      while (pivot < rows && matrix[pivot][col] == 0) {
+        pivot++;
+      }
+      if (pivot == rows) {
+        continue;
+      }
+      var tmp = matrix[pivot];
+      matrix[pivot] = matrix[rank];
+      matrix[rank] = tmp;
+
+      var row = matrix[rank];
+      var inverse = GF256.div(1, row[col]);
+      for (var c = col; c <= cols; c++) {
+        row[c] = GF256.mul(row[c], inverse);
+      }
+      for (var r = 0; r < rows; r++) {
+        var factor = matrix[r][col];
+        if (r != rank && factor != 0) {
+          for (var c = col; c <= cols; c++) {
+            matrix[r][c] ^= GF256.mul(factor, row[c]);
+          }
+        }
+      }
+      pivotCols[rank++] = col;
+    }
+    for (var r = rank; r < rows; r++) {
+      if (matrix[r][cols] != 0) {
+        return false;
+      }
+    }
+    Arrays.fill(solution, 0);
+    for (var r = 0; r < rank; r++) {
+      solution[pivotCols[r]] = matrix[r][cols];
+    }
+    return true;
+  }
+
+  private final class Scratch {
+    private byte[] check = new byte[0];
+    private int[][] matrix = new int[0][];
+    private int[] solution = new int[0];
+    private int[] pivotCols = new int[0];
+    private final int[] good = new int[k];
+    private final int[] goodPoints = new int[k];
+
+    private Scratch resize(int count, int len) {
+      if (check.length != len) {
+        check = new byte[len];
+      }
+      if (matrix.length < count) {
+        // at most count unknowns and the right hand side
+        matrix = new int[count][count + 1];
+        solution = new int[count];
+        pivotCols = new int[count];
+      }
+      return this;
+    }
+  }
+}
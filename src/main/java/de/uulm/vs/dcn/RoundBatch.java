@@ -0,0 +1,142 @@
+package de.uulm.vs.dcn;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Rounds a {@link Cryptographer} has taken from its send queue ahead of time,
+ * see {@link Cryptographer#PARALLEL_ROUNDS}. For every round, the batch holds
+ * the bytes to send, their parts and the XOR of the pads of the round. As the
+ * pads are derived from the round index with
+ * {@link SharedSecretGenerator#roundBytes}, the rounds are independent and
+ * computed in parallel on the common fork/join pool.
+ *
+ * @author Juri Dispan
+ *
+ */
+class RoundBatch {
+  private final byte[][] messages;
+  private final int[] lengths;
+  private byte[][][] parts = new byte[0][][];
+  private byte[][] sums = new byte[0][];
+  private byte[][] scratch = new byte[0][];
+
+  /**
+   * The pending rounds are {@code [next, count)}.
+   */
+  private int next;
+  private int count;
+  private boolean computed;
+
+  /**
+   * @param rounds    The number of rounds taken at once.
+   * @param msgLength The number of bytes sent per round.
+   */
+  RoundBatch(int rounds, int msgLength) {
+    if (rounds < 1) {
+      throw new IllegalArgumentException("Must batch at least one round.");
+    }
+    this.messages = new byte[rounds][msgLength];
+    this.lengths = new int[rounds];
+  }
+
+  /**
+   * @return The number of rounds taken at once.
+   */
+  int capacity() {
+    return messages.length;
+  }
+
+  /**
+   * @return The number of message bytes per round.
+   */
+  int messageLength() {
+    return messages[0].length;
+  }
+
+  boolean isEmpty() {
+    return next == count;
+  }
+
+  /**
+   * @return The number of message bytes of the pending rounds.
+   */
+  long pendingBytes() {
+    var bytes = 0L;
+    for (var j = next; j < count; j++) {
+      bytes += lengths[j];
+    }
+    return bytes;
+  }
+
+  /**
+   * Allocates the buffers for the parts of the specified shape. Pending rounds
+   * are kept, but have to be computed again, since the strategy and the
+   * shared secrets may have changed.
+   */
+  void reshape(int members, int partLength) {
+    var rounds = capacity();
+    parts = new byte[rounds][members][partLength];
+    sums = new byte[rounds][partLength];
+    scratch = new byte[rounds][partLength];
+    computed = false;
+  }
+
+  /**
+   * Takes the bytes of the next {@link RoundBatch#capacity()} rounds from the
+   * queue. Must only be called if the batch is empty.
+   */
+  void fill(ByteRingBuffer queue) {
+    for (var j = 0; j < capacity(); j++) {
+      var msg = messages[j];
+      lengths[j] = queue.drain(msg, 0, msg.length);
+      Arrays.fill(msg, lengths[j], msg.length, (byte) 0);
+    }
+    next = 0;
+    count = capacity();
+    computed = false;
+  }
+
+  boolean isComputed() {
+    return computed;
+  }
+
+  /**
+   * Splits the bytes and computes the pads of all pending rounds in parallel.
+   *
+   * @param round      The index of the next pending round.
+   * @param generators The generators shared with the other members, all
+   *                   seekable.
+   */
+  void compute(SplitCombineStrategy strategy,
+      SharedSecretGenerator[] generators, long round) {
+    var first = next;
+    IntStream.range(first, count).parallel().forEach(j -> {
+      strategy.split(messages[j], parts[j]);
+      var sum = sums[j];
+      Arrays.fill(sum, (byte) 0);
+      for (var generator : generators) {
+        generator.roundBytes(round + j - first, scratch[j], 0, sum.length);
+        Cryptographer.XOR_KERNEL.xor(sum, 0, scratch[j], 0, sum.length);
+      }
+    });
+    computed = true;
+  }
+
+  /**
+   * Hands out the next pending round, which must have been computed. The
+   * parts are swapped with those in {@code toSend}, the pads are copied.
+   *
+   * @return The number of message bytes in the round.
+   */
+  int take(byte[][] toSend, byte[] secretSum) {
+    var round = parts[next];
+    for (var i = 0; i < toSend.length; i++) {
+      var tmp = toSend[i];
+      toSend[i] = round[i];
+      round[i] = tmp;
+    }
+    System.arraycopy(sums[next], 0, secretSum, 0, secretSum.length);
+    return lengths[next++];
+  }
+}
@@ -0,0 +1,93 @@
+package de.uulm.vs.dcn;
+
+import java.util.Locale;
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * Synchronises the members of a {@link DCNetwork} between the phases of the
+ * protocol. Every member calls {@link RoundSynchronizer#awaitPhase()} after
+ * each phase of a round and {@link RoundSynchronizer#awaitRound()} at the end
+ * of each round. Stopping the network is decided at the end of a round, so
+ * that all members stop after the same round.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public interface RoundSynchronizer {
+  /**
+   * Waits until all members have finished the current phase.
+   */
+  void awaitPhase() throws InterruptedException, BrokenBarrierException;
+
+  /**
+   * Waits until all members have finished the current round.
+   * 
+   * @return False if {@link RoundSynchronizer#terminate()} was called before
+   *         the round ended, in which case all members return false. True if
+   *         the members continue with the next round.
+   */
+  boolean awaitRound() throws InterruptedException, BrokenBarrierException;
+
+  /**
+   * Lets all members stop at the end of the current round.
+   */
+  void terminate();
+
+  /**
+   * The available kinds of synchronisers.
+   */
+  enum Kind {
+    /**
+     * {@link BarrierSynchronizer}.
+     */
+    BARRIER,
+    /**
+     * {@link PhaserSynchronizer}.
+     */
+    PHASER,
+    /**
+     * {@link SpinSynchronizer}.
+     */
+    SPIN;
+
+    /**
+     * Creates a synchroniser, a {@link SpinSynchronizer} with its default
+     * backoff.
+     */
+    public RoundSynchronizer create(int parties) {
+      return create(parties, SpinSynchronizer.DEFAULT_SPINS,
+          SpinSynchronizer.DEFAULT_YIELDS);
+    }
+
+    /**
+     * Creates a synchroniser. {@code spins} and {@code yields} configure the
+     * backoff of a {@link SpinSynchronizer} and are ignored by the other
+     * kinds.
+     * 
+     * @throws IllegalArgumentException If a spinning synchroniser is created
+     *                                  with negative {@code spins} or
+     *                                  {@code yields}.
+     */
+    public RoundSynchronizer create(int parties, int spins, int yields) {
+      switch (this) {
+      case BARRIER:
+        return new BarrierSynchronizer(parties);
+      case PHASER:
+        return new PhaserSynchronizer(parties);
+      case SPIN:
+        return new SpinSynchronizer(parties, spins, yields);
+      default:
+        throw new AssertionError(this);
+      }
+    }
+
+    /**
+     * Parses names like {@code phaser} or {@code PHASER}.
+     * 
+     * @throws IllegalArgumentException If there is no such kind.
+     */
+    public static Kind parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+  }
+}
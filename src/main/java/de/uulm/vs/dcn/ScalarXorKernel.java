@@ -0,0 +1,36 @@
+package de.uulm.vs.dcn;
+
+/**
+ * A {@link XorKernel} processing one byte at a time.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class ScalarXorKernel implements XorKernel {
+  static final String NAME = "scalar";
+
+  @Override
+  public void xor(byte[] dst, int dstOff, byte[] src, int srcOff, int len) {
+    for (var i = 0; i < len; i++) {
+      dst[dstOff + i] ^= src[srcOff + i];
+    }
+  }
+
+  @Override
+  public void fold(byte[] dst, byte[][] srcs, int off, int len) {
+    for (var i = off; i < off + len; i++) {
+      byte acc = 0;
+      for (var src : srcs) {
+        if (src != null) {
+          acc ^= src[i];
+        }
+      }
+      dst[i] = acc;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
@@ -0,0 +1,93 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Computes the shared secrets of upcoming rounds on a background thread, so
+ * that generating them is no longer on the critical path of a round. Buffers
+ * are handed out in round order and must be given back after use.
+ * 
+ * @author Juri Dispan
+ *
+ */
+class SecretPrefetcher {
+  private static final Logger LOGGER =
+      Logger.getLogger(SecretPrefetcher.class.getName());
+
+  static {
+    LOGGER.setLevel(Level.OFF);
+  }
+
+  private final BlockingQueue<byte[]> ready;
+  private final BlockingQueue<byte[]> free;
+  private final Consumer<byte[]> generator;
+  private final Thread thread;
+
+  /**
+   * 
+   * @param rounds    How many rounds to compute ahead.
+   * @param length    The number of bytes per round.
+   * @param generator     Fills a buffer with the secrets of the next round.
+   *                      Only ever called from the background thread.
+   * @param threadFactory Creates the background thread.
+   */
+  SecretPrefetcher(int rounds, int length, Consumer<byte[]> generator,
+      ThreadFactory threadFactory) {
+    if (rounds < 1) {
+      throw new IllegalArgumentException("Must prefetch at least one round.");
+    }
+    this.ready = new ArrayBlockingQueue<>(rounds);
+    this.free = new ArrayBlockingQueue<>(rounds);
+    for (var i = 0; i < rounds; i++) {
+      free.add(new byte[length]);
+    }
+    this.generator = generator;
+    this.thread = threadFactory.newThread(this::run);
+    // must not keep the JVM alive if the network is never stopped, virtual
+    // threads are daemon threads anyway
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Stops the background thread. Rounds that have already been computed are
+   * discarded.
+   */
+  void stop() {
+    thread.interrupt();
+  }
+
+  /**
+   * Waits for the secrets of the next round.
+   */
+  byte[] take() throws InterruptedException {
+    return ready.take();
+  }
+
+  /**
+   * Gives back a buffer obtained from {@link SecretPrefetcher#take()}.
+   */
+  void recycle(byte[] buffer) {
+    free.add(buffer);
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        var buffer = free.take();
+        generator.accept(buffer);
+        ready.put(buffer);
+      }
+    } catch (InterruptedException e) {
+      LOGGER.fine("Prefetcher stopped");
+    }
+  }
+}
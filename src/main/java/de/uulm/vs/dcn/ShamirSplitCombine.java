@@ -2,7 +2,6 @@ package de.uulm.vs.dcn;
 
 import java.security.SecureRandom;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import com.codahale.shamir.Scheme;
@@ -21,6 +20,11 @@ public class ShamirSplitCombine extends SplitCombineStrategy {
     scheme = new Scheme(new SecureRandom(), n, k);
   }
 
+  @Override
+  public ShamirSplitCombine resize(int n) {
+    return new ShamirSplitCombine(n, k);
+  }
+
   @Override
   public List<MessagePart> split(byte[] msg) {
     var list = new ArrayList<MessagePart>();
@@ -28,11 +32,34 @@ public class ShamirSplitCombine extends SplitCombineStrategy {
     return list;
   }
 
+  /**
+   * Combines the parts like {@link Scheme#join}, but with Lagrange
+   * coefficients cached per set of points instead of interpolating every byte
+   * from scratch.
+   */
   @Override
   public byte[] combine(List<MessagePart> msgs) {
-    var map = new HashMap<Integer, byte[]>(msgs.size());
-    msgs.forEach(part -> map.put(part.getPoint(), part.getContent()));
-    return scheme.join(map);
+    var count = msgs.size();
+    if (count == 0) {
+      throw new IllegalArgumentException("No parts to combine.");
+    }
+    var points = new int[count];
+    var shares = new byte[count][];
+    for (var i = 0; i < count; i++) {
+      points[i] = msgs.get(i).getPoint();
+      shares[i] = msgs.get(i).getContent();
+      if (shares[i].length != shares[0].length) {
+        throw new IllegalArgumentException("Varying lengths of parts.");
+      }
+    }
+    var out = new byte[shares[0].length];
+    LagrangeCache.interpolate(points, shares, count, out);
+    return out;
+  }
+
+  @Override
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    LagrangeCache.interpolate(points, parts, count, out);
   }
 
 }
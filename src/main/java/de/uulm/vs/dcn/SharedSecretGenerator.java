@@ -0,0 +1,122 @@
+package de.uulm.vs.dcn;
+
+import java.util.Locale;
+
+/**
+ * A generator of the pseudo random stream two cryptographers share. Both
+ * parties construct a generator from the same seed and request the same
+ * numbers of bytes in the same order, which gives them the same shared secrets
+ * without having to communicate.
+ * <p>
+ * Seekable generators can also derive the bytes of any round on their own,
+ * keyed by the round index instead of the position in the stream, see
+ * {@link SharedSecretGenerator#roundBytes}.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public interface SharedSecretGenerator {
+  /**
+   * The number of seed bytes every generator accepts. Generators needing less
+   * use a prefix of the seed.
+   */
+  int SEED_LENGTH = 32;
+
+  /**
+   * Overwrites {@code len} bytes of {@code dst}, starting at {@code off}, with
+   * the next bytes of the shared stream.
+   */
+  void nextBytes(byte[] dst, int off, int len);
+
+  default void nextBytes(byte[] dst) {
+    nextBytes(dst, 0, dst.length);
+  }
+
+  /**
+   * @return Whether {@link SharedSecretGenerator#roundBytes} is supported.
+   */
+  default boolean isSeekable() {
+    return false;
+  }
+
+  /**
+   * Overwrites {@code len} bytes of {@code dst}, starting at {@code off}, with
+   * the shared bytes of the specified round. The result only depends on the
+   * seed, the round and {@code len}, not on earlier calls of this method or of
+   * {@link SharedSecretGenerator#nextBytes}, so rounds can be computed in any
+   * order and concurrently.
+   *
+   * @throws UnsupportedOperationException If the generator is not seekable.
+   */
+  default void roundBytes(long round, byte[] dst, int off, int len) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " is not seekable.");
+  }
+
+  /**
+   * Expands a 64 bit seed into {@value SharedSecretGenerator#SEED_LENGTH} seed
+   * bytes.
+   */
+  static byte[] expandSeed(long seed) {
+    var bytes = new byte[SEED_LENGTH];
+    new SplitMixSecretGenerator(seed).nextBytes(bytes);
+    return bytes;
+  }
+
+  /**
+   * The available kinds of generators.
+   */
+  enum Kind {
+    /**
+     * {@link java.util.Random}, neither fast nor secure. This is the baseline.
+     * Not seekable.
+     */
+    RANDOM,
+    /**
+     * AES-128 in counter mode.
+     */
+    AES_CTR,
+    /**
+     * The ChaCha20 stream cipher.
+     */
+    CHACHA20,
+    /**
+     * SplitMix64, fast but not cryptographically secure. Only for simulation.
+     */
+    SPLITMIX;
+
+    /**
+     * Creates a generator of this kind.
+     * 
+     * @param seed {@value SharedSecretGenerator#SEED_LENGTH} bytes the
+     *             generator is seeded with.
+     */
+    public SharedSecretGenerator create(byte[] seed) {
+      if (seed.length != SEED_LENGTH) {
+        throw new IllegalArgumentException(
+            "Seed must be " + SEED_LENGTH + " bytes long.");
+      }
+      switch (this) {
+      case RANDOM:
+        return new RandomSecretGenerator(seed);
+      case AES_CTR:
+        return new AesCtrSecretGenerator(seed);
+      case CHACHA20:
+        return new ChaCha20SecretGenerator(seed);
+      case SPLITMIX:
+        return new SplitMixSecretGenerator(seed);
+      default:
+        throw new AssertionError(this);
+      }
+    }
+
+    /**
+     * Parses names like {@code aes-ctr} or {@code AES_CTR}.
+     * 
+     * @throws IllegalArgumentException If there is no such kind.
+     */
+    public static Kind parse(String name) {
+      return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package de.uulm.vs.dcn;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free {@link RoundSynchronizer}. It is a sense-reversing barrier, with
+ * a generation counter in place of the sense flag: the last member to arrive
+ * resets the count and advances the generation, all others wait for the
+ * generation to change. Waiting members first spin, then yield and finally
+ * park for increasingly long intervals. A member interrupted while waiting
+ * leaves the synchroniser unusable.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class SpinSynchronizer implements RoundSynchronizer {
+  public static final int DEFAULT_SPINS = 1 << 10;
+  public static final int DEFAULT_YIELDS = 1 << 6;
+  private static final long MAX_PARK_NANOS = 1_000_000;
+
+  private final int parties;
+  private final int spins;
+  private final int yields;
+
+  private final AtomicInteger waiting;
+  private volatile int generation;
+
+  private volatile boolean terminateRequested;
+  private volatile boolean terminated;
+
+  public SpinSynchronizer(int parties) {
+    this(parties, DEFAULT_SPINS, DEFAULT_YIELDS);
+  }
+
+  /**
+   * 
+   * @param parties The number of members.
+   * @param spins   How often a waiting member busy-waits before yielding.
+   * @param yields  How often a waiting member yields before parking.
+   */
+  public SpinSynchronizer(int parties, int spins, int yields) {
+    if (parties < 1 || spins < 0 || yields < 0) {
+      throw new IllegalArgumentException("Invalid synchroniser settings.");
+    }
+    this.parties = parties;
+    this.spins = spins;
+    this.yields = yields;
+    this.waiting = new AtomicInteger(parties);
+  }
+
+  @Override
+  public void awaitPhase() throws InterruptedException {
+    await(false);
+  }
+
+  @Override
+  public boolean awaitRound() throws InterruptedException {
+    await(true);
+    return !terminated;
+  }
+
+  @Override
+  public void terminate() {
+    terminateRequested = true;
+  }
+
+  private void await(boolean roundEnd) throws InterruptedException {
+    var gen = generation;
+    if (waiting.decrementAndGet() == 0) {
+      if (roundEnd) {
+        terminated = terminateRequested;
+      }
+      waiting.set(parties);
+      // publishes the reset count and the termination decision
+      generation = gen + 1;
+      return;
+    }
+
+    var parkNanos = 1L;
+    for (var i = 0; generation == gen; i++) {
+      if (i < spins) {
+        Thread.onSpinWait();
+      } else if (i < spins + yields) {
+        Thread.yield();
+      } else {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        LockSupport.parkNanos(this, parkNanos);
+        parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+      }
+    }
+  }
+}
@@ -1,9 +1,18 @@
 package de.uulm.vs.dcn;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 /**
- * 
+ * A threshold secret sharing scheme. Besides the list based methods, messages
+ * can be split into and combined from caller-owned buffers. The default
+ * implementations of the buffer based methods adapt the list based ones;
+ * strategies override them to avoid allocations. Strategies may be shared
+ * between threads.
+ *
  * @author Juri Dispan
  *
  */
@@ -12,7 +21,13 @@ public abstract class SplitCombineStrategy {
   protected final int k;
 
   /**
-   * 
+   * Per-thread buffers for the {@link ByteBuffer} based methods.
+   */
+  private final ThreadLocal<Scratch> scratch =
+      ThreadLocal.withInitial(Scratch::new);
+
+  /**
+   *
    * @param n The number of produced parts.
    * @param k The minimum amount of message parts required to reconstruct the
    *          original message.
@@ -25,7 +40,7 @@ public abstract class SplitCombineStrategy {
   /**
    * Split the message into n parts. Every k of these parts can be combined to
    * retrieve the original message, whereas every k-1 parts can not.
-   * 
+   *
    * @param msg The message to split up.
    * @return A collection containing the split up messages.
    */
@@ -35,9 +50,151 @@ public abstract class SplitCombineStrategy {
    * Combines the specified message parts into one message. If {@code msgs}
    * contains k or more messages, a meaningful message is returned, otherwiese
    * the result is unspecified.
-   * 
+   *
    * @param msgs The message parts to combine.
    * @return
    */
   public abstract byte[] combine(List<MessagePart> msgs);
+
+  /**
+   * Returns an equivalent strategy producing parts for a different number of
+   * members, used when members join or leave a running {@link DCNetwork}.
+   *
+   * @throws UnsupportedOperationException If the strategy can not be resized.
+   * @throws IllegalArgumentException      If the strategy does not support
+   *                                       {@code n} parts.
+   */
+  public SplitCombineStrategy resize(int n) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " can not be resized.");
+  }
+
+  /**
+   * Returns the length of each part when splitting a message of the specified
+   * length. Unless a strategy packs several message bytes into each byte of a
+   * part, this is the length of the message.
+   */
+  public int partLength(int msgLength) {
+    return msgLength;
+  }
+
+  /**
+   * Splits the message into the specified buffers. The part for point
+   * {@code i + 1} is written to the first {@code partLength(msg.length)} bytes
+   * of {@code shares[i]}.
+   *
+   * @param msg    The message to split up.
+   * @param shares n buffers of at least {@code partLength(msg.length)} bytes.
+   */
+  public void split(byte[] msg, byte[][] shares) {
+    var partLength = partLength(msg.length);
+    for (var part : split(msg)) {
+      System.arraycopy(part.getContent(), 0, shares[part.getPoint() - 1], 0,
+          partLength);
+    }
+  }
+
+  /**
+   * Splits the message like {@link SplitCombineStrategy#split(byte[], byte[][])},
+   * but hands the parts to {@code consumer} one at a time instead of holding
+   * all of them. Every part is written to {@code part}, which the consumer may
+   * modify. The default implementation adapts the list based method;
+   * strategies override it to get by with scratch space for a few messages.
+   *
+   * @param msg      The message to split up.
+   * @param part     A buffer of at least {@code partLength(msg.length)} bytes.
+   * @param consumer Called with the part for point {@code i + 1} and i, once
+   *                 for every i.
+   */
+  public void split(byte[] msg, byte[] part, ObjIntConsumer<byte[]> consumer) {
+    var partLength = partLength(msg.length);
+    for (var share : split(msg)) {
+      System.arraycopy(share.getContent(), 0, part, 0, partLength);
+      consumer.accept(part, share.getPoint() - 1);
+    }
+  }
+
+  /**
+   * Combines the first {@code count} parts into the specified buffer. If
+   * {@code count} is at least k, {@code out} receives the message, otherwise
+   * its content is unspecified.
+   *
+   * @param points The points of the parts.
+   * @param parts  The parts, at least {@code partLength(out.length)} bytes
+   *               each. Must not alias {@code out}.
+   * @param count  The number of parts to combine.
+   * @param out    Receives the message.
+   */
+  public void combine(int[] points, byte[][] parts, int count, byte[] out) {
+    var partLength = partLength(out.length);
+    var msgs = new ArrayList<MessagePart>(count);
+    for (var i = 0; i < count; i++) {
+      var content =
+          parts[i].length == partLength ? parts[i]
+              : Arrays.copyOf(parts[i], partLength);
+      msgs.add(new MessagePart(points[i], content));
+    }
+    var msg = combine(msgs);
+    System.arraycopy(msg, 0, out, 0, out.length);
+  }
+
+  /**
+   * Splits the remaining bytes of {@code msg} into the specified buffers. The
+   * part for point {@code i + 1} is written to {@code shares[i]} at its
+   * position. The positions of all buffers are advanced.
+   *
+   * @param msg    The message to split up.
+   * @param shares n buffers with at least {@code partLength(msg.remaining())}
+   *               bytes remaining.
+   */
+  public void split(ByteBuffer msg, ByteBuffer[] shares) {
+    var partLength = partLength(msg.remaining());
+    var local = scratch.get().resize(n, msg.remaining(), partLength);
+    msg.get(local.message);
+    split(local.message, local.parts);
+    for (var i = 0; i < n; i++) {
+      shares[i].put(local.parts[i], 0, partLength);
+    }
+  }
+
+  /**
+   * Combines the remaining bytes of the first {@code count} parts into
+   * {@code out}, starting at its position. The position of {@code out} is
+   * advanced by {@code out.remaining()}, those of the parts by
+   * {@code partLength(out.remaining())}.
+   *
+   * @param points The points of the parts.
+   * @param parts  The parts, with at least {@code partLength(out.remaining())}
+   *               bytes remaining.
+   * @param count  The number of parts to combine.
+   * @param out    Receives the message.
+   */
+  public void combine(int[] points, ByteBuffer[] parts, int count,
+      ByteBuffer out) {
+    var partLength = partLength(out.remaining());
+    var local = scratch.get().resize(count, out.remaining(), partLength);
+    for (var i = 0; i < count; i++) {
+      parts[i].get(local.parts[i], 0, partLength);
+    }
+    combine(points, local.parts, count, local.message);
+    out.put(local.message);
+  }
+
+  /**
+   * Buffers for copying {@link ByteBuffer} contents to arrays, kept as long as
+   * their size does not change.
+   */
+  private static final class Scratch {
+    private byte[] message = new byte[0];
+    private byte[][] parts = new byte[0][];
+
+    private Scratch resize(int count, int len, int partLength) {
+      if (message.length != len || parts.length < count
+          || parts.length > 0 && parts[0].length != partLength) {
+        message = new byte[len];
+        parts = new byte[Math.max(count, parts.length)][partLength];
+      }
+      return this;
+    }
+  }
 }
@@ -0,0 +1,36 @@
+package de.uulm.vs.dcn;
+
+/**
+ * A {@link GF256Kernel} looking up every product in the row of the
+ * multiplication table belonging to the constant. Serves as the reference for
+ * other kernels.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TableGF256Kernel implements GF256Kernel {
+  static final String NAME = "table";
+
+  @Override
+  public void mul(byte[] dst, int dstOff, byte[] src, int srcOff, int len,
+      int c) {
+    var row = (c & 0xff) << 8;
+    for (var i = 0; i < len; i++) {
+      dst[dstOff + i] = GF256.MUL[row | src[srcOff + i] & 0xff];
+    }
+  }
+
+  @Override
+  public void mulAdd(byte[] dst, int dstOff, byte[] src, int srcOff, int len,
+      int c) {
+    var row = (c & 0xff) << 8;
+    for (var i = 0; i < len; i++) {
+      dst[dstOff + i] ^= GF256.MUL[row | src[srcOff + i] & 0xff];
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
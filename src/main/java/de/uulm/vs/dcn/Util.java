@@ -3,6 +3,9 @@ package de.uulm.vs.dcn;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+
 /**
  * Various static utility functions.
  * 
@@ -10,6 +13,10 @@ import java.util.List;
  *
  */
 public class Util {
+  /**
+   * The source of {@link Util#keyStream}, never written.
+   */
+  private static final byte[] ZEROS = new byte[1 << 12];
 
   /**
    * Returns a copy of the specified array with tailing 0-valued bytes removed.
@@ -79,4 +86,18 @@ public class Util {
     }
     return pts;
   }
+
+  /**
+   * Overwrites {@code len} bytes of {@code dst}, starting at {@code off}, with
+   * the next bytes of the key stream of a stream cipher, the encryption of
+   * zeros. The zeros are not encrypted in place: the JDK copies the input of
+   * such updates, which for AES/CTR allocated as many bytes as it produced.
+   */
+  static void keyStream(Cipher cipher, byte[] dst, int off, int len)
+      throws ShortBufferException {
+    for (var done = 0; done < len; done += ZEROS.length) {
+      var chunk = Math.min(ZEROS.length, len - done);
+      cipher.update(ZEROS, 0, chunk, dst, off + done);
+    }
+  }
 }
@@ -0,0 +1,69 @@
+package de.uulm.vs.dcn;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates virtual threads on JVMs that support them (Java 21 and later). The
+ * API is looked up reflectively, so that this project still builds and runs
+ * on older JVMs.
+ * 
+ * @author Juri Dispan
+ *
+ */
+final class VirtualThreads {
+  /**
+   * {@code Thread.ofVirtual().unstarted(Runnable)}, or null if virtual threads
+   * are not supported.
+   */
+  private static final MethodHandle UNSTARTED = lookupUnstarted();
+
+  private VirtualThreads() {
+  }
+
+  static boolean isSupported() {
+    return UNSTARTED != null;
+  }
+
+  /**
+   * Creates an unstarted virtual thread.
+   * 
+   * @throws UnsupportedOperationException If this JVM does not support virtual
+   *                                       threads.
+   */
+  static Thread newThread(Runnable task) {
+    if (UNSTARTED == null) {
+      throw new UnsupportedOperationException(
+          "Virtual threads require Java 21 or later.");
+    }
+    try {
+      return (Thread) UNSTARTED.invoke(task);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MethodHandle lookupUnstarted() {
+    try {
+      var lookup = MethodHandles.publicLookup();
+      var builder = Class.forName("java.lang.Thread$Builder");
+      var ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      var ofVirtual =
+          lookup.findStatic(Thread.class, "ofVirtual",
+              MethodType.methodType(ofVirtualBuilder));
+      var unstarted =
+          lookup.findVirtual(builder, "unstarted",
+              MethodType.methodType(Thread.class, Runnable.class));
+      // unstarted(ofVirtual(), task)
+      return MethodHandles.foldArguments(
+          unstarted.asType(MethodType.methodType(Thread.class,
+              ofVirtualBuilder, Runnable.class)),
+          ofVirtual);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+}
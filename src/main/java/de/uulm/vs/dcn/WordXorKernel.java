@@ -0,0 +1,60 @@
+package de.uulm.vs.dcn;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A {@link XorKernel} processing eight bytes at a time by viewing the byte
+ * arrays as arrays of longs. The JIT compiler usually vectorises these loops
+ * further.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class WordXorKernel implements XorKernel {
+  static final String NAME = "word";
+
+  /**
+   * Number of bytes folded at once, small enough for the destination block to
+   * stay in the L1 cache while all sources are XORed into it.
+   */
+  private static final int BLOCK = 4096;
+
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class,
+          ByteOrder.nativeOrder());
+
+  @Override
+  public void xor(byte[] dst, int dstOff, byte[] src, int srcOff, int len) {
+    var i = 0;
+    for (; i <= len - Long.BYTES; i += Long.BYTES) {
+      var d = (long) LONGS.get(dst, dstOff + i);
+      var s = (long) LONGS.get(src, srcOff + i);
+      LONGS.set(dst, dstOff + i, d ^ s);
+    }
+    for (; i < len; i++) {
+      dst[dstOff + i] ^= src[srcOff + i];
+    }
+  }
+
+  @Override
+  public void fold(byte[] dst, byte[][] srcs, int off, int len) {
+    var end = off + len;
+    for (var block = off; block < end; block += BLOCK) {
+      var blockLen = Math.min(BLOCK, end - block);
+      Arrays.fill(dst, block, block + blockLen, (byte) 0);
+      for (var src : srcs) {
+        if (src != null) {
+          xor(dst, block, src, block, blockLen);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
@@ -0,0 +1,119 @@
+package de.uulm.vs.dcn;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A {@link KeyExchange} performing X25519 Diffie-Hellman between the key pairs
+ * of the two cryptographers, see {@link Cryptographer#getKeyPair()}. The
+ * shared point is turned into a seed with HKDF-SHA256 (RFC 5869), bound to the
+ * numbers of both cryptographers.
+ * <p>
+ * In a real network each side computes the agreement with the other's public
+ * key. Both results are equal, so the simulation computes it once per pair.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class X25519KeyExchange implements KeyExchange {
+  static final String ALGORITHM = "X25519";
+  private static final String HMAC = "HmacSHA256";
+  private static final byte[] SALT =
+      "dcn-x25519-seed".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * {@link KeyAgreement} and {@link Mac} instances are not thread-safe, so
+   * every thread gets its own.
+   */
+  private final ThreadLocal<KeyAgreement> agreement =
+      ThreadLocal.withInitial(() -> {
+        try {
+          return KeyAgreement.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+          throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+      });
+  private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
+    try {
+      return Mac.getInstance(HMAC);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(HMAC + " is not available", e);
+    }
+  });
+
+  @Override
+  public byte[] agree(Cryptographer c1, Cryptographer c2) {
+    var lower = c1.getNumber() < c2.getNumber() ? c1 : c2;
+    var upper = lower == c1 ? c2 : c1;
+    byte[] shared;
+    try {
+      var ka = agreement.get();
+      ka.init(lower.getKeyPair().getPrivate());
+      ka.doPhase(upper.getKeyPair().getPublic(), true);
+      shared = ka.generateSecret();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Key agreement failed", e);
+    }
+
+    var info = new byte[2 * Integer.BYTES];
+    putInt(info, 0, lower.getNumber());
+    putInt(info, Integer.BYTES, upper.getNumber());
+    var seed =
+        hkdf(mac.get(), SALT, shared, info, SharedSecretGenerator.SEED_LENGTH);
+    Arrays.fill(shared, (byte) 0);
+    return seed;
+  }
+
+  /**
+   * Generates a new X25519 key pair.
+   */
+  static KeyPair generateKeyPair() {
+    try {
+      return KeyPairGenerator.getInstance(ALGORITHM).generateKeyPair();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(ALGORITHM + " is not available", e);
+    }
+  }
+
+  /**
+   * HKDF as specified in RFC 5869, extracting a key from {@code ikm} and
+   * expanding it to {@code length} bytes.
+   * 
+   * @param mac An HMAC instance, determining the hash function.
+   */
+  static byte[] hkdf(Mac mac, byte[] salt, byte[] ikm, byte[] info,
+      int length) {
+    try {
+      mac.init(new SecretKeySpec(salt, mac.getAlgorithm()));
+      var prk = mac.doFinal(ikm);
+      mac.init(new SecretKeySpec(prk, mac.getAlgorithm()));
+      var okm = new byte[length];
+      var block = new byte[0];
+      var counter = 1;
+      for (var off = 0; off < length; off += block.length) {
+        mac.update(block);
+        mac.update(info);
+        mac.update((byte) counter++);
+        block = mac.doFinal();
+        System.arraycopy(block, 0, okm, off,
+            Math.min(block.length, length - off));
+      }
+      return okm;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void putInt(byte[] dst, int off, int value) {
+    for (var i = 0; i < Integer.BYTES; i++) {
+      dst[off + i] = (byte) (value >>> (8 * (Integer.BYTES - 1 - i)));
+    }
+  }
+}
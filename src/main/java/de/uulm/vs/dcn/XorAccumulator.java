@@ -0,0 +1,211 @@
+package de.uulm.vs.dcn;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A buffer that any number of threads XOR into concurrently. Used by
+ * {@link Cryptographer} when {@link Cryptographer#ACCUMULATE} is set, so that a
+ * member receives all parts in a single buffer instead of one per sender.
+ * <p>
+ * The buffer is viewed as an array of longs, which are updated with
+ * {@link VarHandle#getAndBitwiseXor}. Where the JVM does not support atomic
+ * access to the buffer, the words are updated under one lock per stripe
+ * instead. The buffer either is a byte array or lives outside the heap, see
+ * {@link XorAccumulator#create(int, boolean)}.
+ *
+ * @author Juri Dispan
+ *
+ */
+abstract class XorAccumulator {
+  private static final VarHandle LONGS =
+      MethodHandles.byteArrayViewVarHandle(long[].class,
+          ByteOrder.nativeOrder());
+
+  private static final boolean LITTLE_ENDIAN =
+      ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+  /**
+   * The number of bytes guarded by each lock if words cannot be updated
+   * atomically.
+   */
+  private static final int STRIPE = 1 << 12;
+
+  /**
+   * The length of the buffer, rounded up to whole words.
+   */
+  final int capacity;
+  private final Object[] locks;
+
+  /**
+   * @param length The number of bytes accumulated.
+   * @param atomic Whether the implementation supports
+   *               {@link XorAccumulator#xorAtomic}.
+   */
+  XorAccumulator(int length, boolean atomic) {
+    this.capacity = (length + Long.BYTES - 1) & -Long.BYTES;
+    if (atomic) {
+      this.locks = null;
+    } else {
+      this.locks = new Object[(capacity + STRIPE - 1) / STRIPE];
+      Arrays.setAll(locks, __ -> new Object());
+    }
+  }
+
+  /**
+   * @param length  The number of bytes accumulated.
+   * @param offHeap Whether the buffer is allocated outside the heap with the
+   *                Foreign Memory API, by the {@code OffHeapXorAccumulator}.
+   *                It is compiled from a separate source set on JDK 21 and
+   *                later, and needs {@code --enable-preview} on JDK 21.
+   * @throws IllegalStateException If the off-heap accumulator is not
+   *                               available.
+   */
+  static XorAccumulator create(int length, boolean offHeap) {
+    if (!offHeap) {
+      return new Heap(length);
+    }
+    try {
+      return (XorAccumulator) Class
+          .forName("de.uulm.vs.dcn.OffHeapXorAccumulator")
+          .getDeclaredConstructor(int.class).newInstance(length);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalStateException(
+          "Off-heap accumulators need JDK 22, or JDK 21 with --enable-preview.",
+          e);
+    }
+  }
+
+  /**
+   * @return A buffer suitable for {@link XorAccumulator#exchange(byte[])}.
+   */
+  byte[] newBuffer() {
+    return new byte[capacity];
+  }
+
+  /**
+   * XORs the specified range of {@code src} into the same range of the buffer.
+   * Safe to call concurrently with other calls of this method.
+   *
+   * @param src  At least {@code to} bytes long.
+   * @param from The first byte of the range.
+   * @param to   The end of the range, exclusive.
+   */
+  void xor(byte[] src, int from, int to) {
+    for (var w = from & -Long.BYTES; w < to; w += Long.BYTES) {
+      long value;
+      if (w >= from && w + Long.BYTES <= to) {
+        value = (long) LONGS.get(src, w);
+      } else {
+        value = partialWord(src, w, Math.max(w, from),
+            Math.min(w + Long.BYTES, to));
+      }
+      if (locks == null) {
+        xorAtomic(w, value);
+      } else {
+        synchronized (locks[w / STRIPE]) {
+          xorPlain(w, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Hands out the accumulated bytes and clears the buffer. Must not run
+   * concurrently with {@link XorAccumulator#xor}.
+   *
+   * @param consumed A buffer which has been returned by an earlier call or by
+   *                 {@link XorAccumulator#newBuffer()}, and is no longer used
+   *                 by the caller.
+   * @return The accumulated bytes.
+   */
+  abstract byte[] exchange(byte[] consumed);
+
+  /**
+   * Moves the specified range of the accumulated bytes to {@code dst} and
+   * clears it. Disjoint ranges may be drained concurrently, but not
+   * concurrently with {@link XorAccumulator#xor}.
+   */
+  abstract void drainTo(byte[] dst, int from, int to);
+
+  /**
+   * XORs {@code value} into the word at byte offset {@code w} atomically.
+   */
+  abstract void xorAtomic(int w, long value);
+
+  /**
+   * XORs {@code value} into the word at byte offset {@code w}, the caller
+   * holds its lock.
+   */
+  abstract void xorPlain(int w, long value);
+
+  /**
+   * Reads the bytes {@code [from, to)} of the word starting at {@code w},
+   * leaving the other bytes 0.
+   */
+  private static long partialWord(byte[] src, int w, int from, int to) {
+    var value = 0L;
+    for (var i = from; i < to; i++) {
+      var shift = LITTLE_ENDIAN ? i - w : Long.BYTES - 1 - (i - w);
+      value |= (src[i] & 0xffL) << (8 * shift);
+    }
+    return value;
+  }
+
+  /**
+   * Accumulates into a byte array, which is swapped for the consumed buffer
+   * instead of being copied.
+   */
+  static final class Heap extends XorAccumulator {
+    /**
+     * Whether {@link XorAccumulator#LONGS} supports atomic updates of aligned
+     * words, which depends on the alignment of the array base.
+     */
+    static final boolean ATOMIC = supportsAtomicXor();
+
+    private byte[] buffer;
+
+    Heap(int length) {
+      super(length, ATOMIC);
+      this.buffer = new byte[capacity];
+    }
+
+    @Override
+    byte[] exchange(byte[] consumed) {
+      if (consumed.length != capacity) {
+        throw new IllegalArgumentException("Buffer has the wrong length.");
+      }
+      Arrays.fill(consumed, (byte) 0);
+      var accumulated = buffer;
+      buffer = consumed;
+      return accumulated;
+    }
+
+    @Override
+    void drainTo(byte[] dst, int from, int to) {
+      System.arraycopy(buffer, from, dst, from, to - from);
+      Arrays.fill(buffer, from, to, (byte) 0);
+    }
+
+    @Override
+    void xorAtomic(int w, long value) {
+      LONGS.getAndBitwiseXor(buffer, w, value);
+    }
+
+    @Override
+    void xorPlain(int w, long value) {
+      LONGS.set(buffer, w, (long) LONGS.get(buffer, w) ^ value);
+    }
+
+    private static boolean supportsAtomicXor() {
+      try {
+        LONGS.getAndBitwiseXor(new byte[Long.BYTES], 0, 0L);
+        return true;
+      } catch (IllegalStateException | UnsupportedOperationException e) {
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package de.uulm.vs.dcn;
+
+/**
+ * Bulk XOR operations on byte arrays. This is where the DCN protocol spends
+ * most of its time, so implementations may process several bytes at once.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public interface XorKernel {
+  /**
+   * The system property which can be used to choose a kernel by name instead
+   * of letting {@link XorKernel#select()} decide.
+   */
+  String PROPERTY = "dcn.xor";
+
+  /**
+   * XORs {@code len} bytes of {@code src}, starting at {@code srcOff}, into
+   * {@code dst}, starting at {@code dstOff}.
+   */
+  void xor(byte[] dst, int dstOff, byte[] src, int srcOff, int len);
+
+  /**
+   * XORs the first {@code len} bytes of {@code src} into {@code dst}.
+   */
+  default void xor(byte[] dst, byte[] src, int len) {
+    xor(dst, 0, src, 0, len);
+  }
+
+  /**
+   * Overwrites {@code len} bytes of {@code dst}, starting at {@code off}, with
+   * the XOR of the same range of all non-null arrays in {@code srcs}. Each
+   * source is read once. Implementations may XOR the sources into {@code dst}
+   * one after another, block by block, so that the block of {@code dst} stays
+   * in the cache meanwhile.
+   */
+  void fold(byte[] dst, byte[][] srcs, int off, int len);
+
+  /**
+   * Overwrites the first {@code len} bytes of {@code dst} with the XOR of all
+   * non-null arrays in {@code srcs}.
+   */
+  default void fold(byte[] dst, byte[][] srcs, int len) {
+    fold(dst, srcs, 0, len);
+  }
+
+  /**
+   * XORs the first {@code len} bytes of {@code src} into every non-null array
+   * in {@code dsts}.
+   */
+  default void xorInto(byte[][] dsts, byte[] src, int len) {
+    for (var dst : dsts) {
+      if (dst != null) {
+        xor(dst, 0, src, 0, len);
+      }
+    }
+  }
+
+  String getName();
+
+  /**
+   * Chooses the kernel named by the {@value XorKernel#PROPERTY} system
+   * property, or else the one which is faster on the running JDK. The JIT
+   * compiler of JDK 17 and later vectorises the loops of the
+   * {@link WordXorKernel}, which makes it faster than the
+   * {@link ScalarXorKernel}. On older JDKs it is slower. The choice only
+   * depends on the JDK, so that benchmark runs on the same JDK stay
+   * comparable.
+   * 
+   * @throws IllegalArgumentException If the system property names an unknown
+   *                                  kernel.
+   */
+  static XorKernel select() {
+    var name =
+        System.getProperty(PROPERTY, Runtime.version().feature() >= 17
+            ? WordXorKernel.NAME : ScalarXorKernel.NAME);
+    switch (name) {
+    case ScalarXorKernel.NAME:
+      return new ScalarXorKernel();
+    case WordXorKernel.NAME:
+      return new WordXorKernel();
+    default:
+      throw new IllegalArgumentException("Unknown XOR kernel: " + name);
+    }
+  }
+}
@@ -2,9 +2,13 @@ package de.uulm.vs.dcn.benchmarking;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.util.Locale;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
@@ -12,13 +16,27 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import de.uulm.vs.dcn.Cryptographer;
+import de.uulm.vs.dcn.DCNetwork;
 import de.uulm.vs.dcn.DefaultSplitCombineStrategy;
+import de.uulm.vs.dcn.FastShamirSplitCombine;
+import de.uulm.vs.dcn.ForkJoinDCNetwork;
+import de.uulm.vs.dcn.KeyExchange;
+import de.uulm.vs.dcn.KeyGraph;
+import de.uulm.vs.dcn.LockstepDCNetwork;
+import de.uulm.vs.dcn.PackedShamirSplitCombine;
+import de.uulm.vs.dcn.ReplicatedSplitCombine;
+import de.uulm.vs.dcn.RoundSynchronizer;
 import de.uulm.vs.dcn.ShamirSplitCombine;
+import de.uulm.vs.dcn.SharedSecretGenerator;
+import de.uulm.vs.dcn.SpinSynchronizer;
 import de.uulm.vs.dcn.SplitCombineStrategy;
 import de.uulm.vs.dcn.benchmarking.specs.BenchmarkSpec;
 import de.uulm.vs.dcn.benchmarking.specs.IncreasingBPR;
+import de.uulm.vs.dcn.benchmarking.specs.IncreasingDegree;
 import de.uulm.vs.dcn.benchmarking.specs.IncreasingK;
 import de.uulm.vs.dcn.benchmarking.specs.IncreasingN;
+import de.uulm.vs.dcn.benchmarking.specs.IncreasingPacking;
+import de.uulm.vs.dcn.benchmarking.specs.MembershipLatency;
 
 /**
  * 
@@ -35,57 +53,221 @@ public class Benchmarking {
     var mode = new Option("c", "config-file", true, "config file");
     options.addOption(mode);
 
+    var optGenerator =
+        new Option("g", "generator", true,
+            "shared secret generator: random (default), aes-ctr, chacha20 or splitmix");
+    options.addOption(optGenerator);
+
+    var optPrefetch =
+        new Option("p", "prefetch", true,
+            "number of rounds to compute shared secrets ahead (default 0)");
+    options.addOption(optPrefetch);
+
+    var optSync =
+        new Option("s", "synchronizer", true,
+            "round synchronizer: barrier (default), phaser or spin");
+    options.addOption(optSync);
+
+    var optSpins =
+        new Option("w", "spins", true,
+            "how often the spin synchronizer busy-waits before yielding (default "
+                + SpinSynchronizer.DEFAULT_SPINS + ")");
+    options.addOption(optSpins);
+
+    var optYields =
+        new Option("y", "yields", true,
+            "how often the spin synchronizer yields before parking (default "
+                + SpinSynchronizer.DEFAULT_YIELDS + ")");
+    options.addOption(optYields);
+
+    var optThreads =
+        new Option("t", "threads", true,
+            "threads the cryptographers run on: platform (default) or virtual");
+    options.addOption(optThreads);
+
+    var optEngine =
+        new Option("e", "engine", true,
+            "how the protocol is executed: threaded (default), lockstep or forkjoin");
+    options.addOption(optEngine);
+
+    var optParallelism =
+        new Option("j", "parallelism", true,
+            "number of threads of the forkjoin engine (default: number of processors)");
+    options.addOption(optParallelism);
+
+    var optAccumulate =
+        new Option("a", "accumulate", false,
+            "XOR incoming parts into a single buffer per cryptographer");
+    options.addOption(optAccumulate);
+
+    var optOffHeap =
+        new Option("m", "off-heap", false,
+            "like --accumulate, with the buffers outside the heap (JDK 22, or 21 with --enable-preview)");
+    options.addOption(optOffHeap);
+
+    var optPipeline =
+        new Option("l", "pipeline", false,
+            "send the next round while the current one is in flight");
+    options.addOption(optPipeline);
+
+    var optParallelRounds =
+        new Option("P", "parallel-rounds", true,
+            "number of rounds computed ahead in parallel while the send queue is deep, requires a seekable generator (default 0)");
+    options.addOption(optParallelRounds);
+
+    var optKeyExchange =
+        new Option("x", "key-exchange", true,
+            "how shared seeds are agreed on: random (default) or x25519");
+    options.addOption(optKeyExchange);
+
+    var optKeyGraph =
+        new Option("r", "key-graph", true,
+            "members sharing secrets: complete (default), ring, random or expander");
+    options.addOption(optKeyGraph);
+
+    var optDegree =
+        new Option("d", "degree", true,
+            "degree of the key graph, unless it is complete (default 4)");
+    options.addOption(optDegree);
+
     try {
       var parser = new DefaultParser();
       var cmd = parser.parse(options, args);
       var outFolder = cmd.getOptionValue("out-folder", ".");
       var cfgFile = cmd.getOptionValue("config-file", "config.txt");
+      Cryptographer.SECRET_GENERATOR =
+          parse("generator", () -> SharedSecretGenerator.Kind
+              .parse(cmd.getOptionValue("generator", "random")));
+      Cryptographer.PREFETCH_ROUNDS = parseInt(cmd, "prefetch", "0");
+      Cryptographer.ACCUMULATE = cmd.hasOption("accumulate");
+      Cryptographer.OFF_HEAP = cmd.hasOption("off-heap");
+      Cryptographer.PIPELINE = cmd.hasOption("pipeline");
+      Cryptographer.PARALLEL_ROUNDS = parseInt(cmd, "parallel-rounds", "0");
+      Cryptographer.KEY_EXCHANGE =
+          parse("key-exchange", () -> KeyExchange.Kind
+              .parse(cmd.getOptionValue("key-exchange", "random")));
+      var syncKind =
+          parse("synchronizer", () -> RoundSynchronizer.Kind
+              .parse(cmd.getOptionValue("synchronizer", "barrier")));
+      var spins =
+          parseInt(cmd, "spins",
+              Integer.toString(SpinSynchronizer.DEFAULT_SPINS));
+      var yields =
+          parseInt(cmd, "yields",
+              Integer.toString(SpinSynchronizer.DEFAULT_YIELDS));
+      // fails early instead of when the first network is created
+      parse("backoff", () -> syncKind.create(1, spins, yields));
+      var threadMode =
+          parse("threads", () -> DCNetwork.ThreadMode
+              .parse(cmd.getOptionValue("threads", "platform")));
+      var graphKind =
+          parse("key-graph", () -> KeyGraph.Kind
+              .parse(cmd.getOptionValue("key-graph", "complete")));
+      var degree = parseInt(cmd, "degree", "4");
+      var keyGraph = parse("degree", () -> graphKind.create(degree, 0));
+      IntFunction<DCNetwork> networkFactory;
+      switch (cmd.getOptionValue("engine", "threaded")) {
+      case "threaded":
+        networkFactory = DCNetwork::new;
+        break;
+      case "lockstep":
+        networkFactory = LockstepDCNetwork::new;
+        break;
+      case "forkjoin":
+        var parallelism =
+            parseInt(cmd, "parallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors()));
+        networkFactory = k -> new ForkJoinDCNetwork(k, parallelism);
+        break;
+      default:
+        throw new ParseException("Invalid engine.");
+      }
 
       var tasks =
           Files.readAllLines(new File(cfgFile).toPath()).stream()
-              .filter(line -> !line.startsWith("#"))
+              .filter(line -> !line.startsWith("#") && !line.isBlank())
               .map(line -> line.split("\\s*,\\s*"))
               .collect(Collectors.toList());
       for (var task : tasks) {
-        BiFunction<Integer, Integer, SplitCombineStrategy> sup =
-            Boolean.parseBoolean(task[5]) ? ShamirSplitCombine::new
-                : DefaultSplitCombineStrategy::new;
+        if (task.length != 10) {
+          throw new ParseException(
+              "Config lines need 10 columns: " + String.join(", ", task));
+        }
+        var sup = strategyFor(task[5]);
 
-        var min = Integer.parseInt(task[6]);
-        var max = Integer.parseInt(task[7]);
-        int bpr, step, n, k, delay = Integer.parseInt(task[9]);
+        var min = parseInt(task, 6);
+        var max = parseInt(task, 7);
+        int bpr, step, n, k, delay = parseInt(task, 9);
 
         BenchmarkSpec spec;
         switch (task[0]) {
         case "n":
-          k = Integer.parseInt(task[2]);
-          bpr = Integer.parseInt(task[3]);
-          step = Integer.parseInt(task[8]);
+          k = parseInt(task, 2);
+          bpr = parseInt(task, 3);
+          step = parseInt(task, 8);
 
           Cryptographer.BYTES_PER_ROUND = bpr;
           spec = new IncreasingN(min, max, step, k);
           break;
         case "k":
-          n = Integer.parseInt(task[1]);
-          bpr = Integer.parseInt(task[3]);
-          step = Integer.parseInt(task[8]);
+          n = parseInt(task, 1);
+          bpr = parseInt(task, 3);
+          step = parseInt(task, 8);
 
           Cryptographer.BYTES_PER_ROUND = bpr;
           spec = new IncreasingK(n, min, max, step);
           break;
         case "bpr":
-          n = Integer.parseInt(task[1]);
-          k = Integer.parseInt(task[2]);
+          n = parseInt(task, 1);
+          k = parseInt(task, 2);
 
           spec = new IncreasingBPR(n, k, min, max);
           break;
+        case "l":
+          n = parseInt(task, 1);
+          k = parseInt(task, 2);
+          bpr = parseInt(task, 3);
+          step = parseInt(task, 8);
+
+          Cryptographer.BYTES_PER_ROUND = bpr;
+          spec = new IncreasingPacking(n, k, min, max, step);
+          // only used for warming up, the spec chooses the packing factor
+          sup = (n1, k1) -> new PackedShamirSplitCombine(n1, k1, 1);
+          break;
+        case "d":
+          n = parseInt(task, 1);
+          k = parseInt(task, 2);
+          bpr = parseInt(task, 3);
+          step = parseInt(task, 8);
+
+          Cryptographer.BYTES_PER_ROUND = bpr;
+          // sweeping the degree of a complete graph makes no sense
+          spec =
+              new IncreasingDegree(n, k,
+                  graphKind == KeyGraph.Kind.COMPLETE ? KeyGraph.Kind.RANDOM
+                      : graphKind,
+                  min, max, step);
+          break;
+        case "m":
+          k = parseInt(task, 2);
+          bpr = parseInt(task, 3);
+          step = parseInt(task, 8);
+
+          Cryptographer.BYTES_PER_ROUND = bpr;
+          spec = new MembershipLatency(k, min, max, step);
+          break;
         default:
           throw new ParseException("Invalid variable mode in config file.");
         }
         Cryptographer.DELAY = delay;
 
-        spec.setLen(Integer.parseInt(task[4]));
+        spec.setLen(parseInt(task, 4));
         spec.setStrategySupp(sup);
+        spec.setSynchronizerFactory(
+            parties -> syncKind.create(parties, spins, yields));
+        spec.setThreadMode(threadMode);
+        spec.setNetworkFactory(networkFactory);
+        spec.setKeyGraph(keyGraph);
         spec.setName(String.join("_", task));
         spec.setOutFolder(outFolder);
 
@@ -93,11 +275,62 @@ public class Benchmarking {
       }
 
       // runBenchmarks(bytesPerRound, outFolder);
-    } catch (ParseException | NumberFormatException e) {
+    } catch (ParseException e) {
       System.out.println(e.getMessage());
       new HelpFormatter().printHelp("Enhanced DCN Benchmarking", options);
       System.exit(1);
     }
   }
 
+  /**
+   * Runs the parser of an option or config value. Invalid values are reported
+   * as {@link ParseException}, so that they lead to the usage message whereas
+   * failures of the benchmarks themselves propagate.
+   */
+  private static <T> T parse(String name, Supplier<T> parser)
+      throws ParseException {
+    try {
+      return parser.get();
+    } catch (IllegalArgumentException e) {
+      throw new ParseException("Invalid " + name + ": " + e.getMessage());
+    }
+  }
+
+  private static int parseInt(CommandLine cmd, String option,
+      String defaultValue) throws ParseException {
+    var value = cmd.getOptionValue(option, defaultValue);
+    return parse(option, () -> Integer.parseInt(value));
+  }
+
+  /**
+   * Parses the specified column of a line of the config file.
+   */
+  private static int parseInt(String[] task, int column)
+      throws ParseException {
+    return parse("column " + (column + 1) + " of " + String.join(", ", task),
+        () -> Integer.parseInt(task[column]));
+  }
+
+  /**
+   * Maps the tc column of the config file to a strategy: {@code true} or
+   * {@code shamir} for {@link ShamirSplitCombine}, {@code fast} for
+   * {@link FastShamirSplitCombine}, {@code xor} for
+   * {@link ReplicatedSplitCombine} and anything else for no threshold
+   * cryptography.
+   */
+  private static BiFunction<Integer, Integer, SplitCombineStrategy> strategyFor(
+      String tc) {
+    switch (tc.toLowerCase(Locale.ROOT)) {
+    case "true":
+    case "shamir":
+      return ShamirSplitCombine::new;
+    case "fast":
+      return FastShamirSplitCombine::new;
+    case "xor":
+      return ReplicatedSplitCombine::new;
+    default:
+      return DefaultSplitCombineStrategy::new;
+    }
+  }
+
 }
@@ -3,19 +3,22 @@ package de.uulm.vs.dcn.benchmarking.specs;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.Semaphore;
+import java.util.List;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import java.util.function.LongToDoubleFunction;
 import java.util.stream.Collectors;
 
+import de.uulm.vs.dcn.BarrierSynchronizer;
 import de.uulm.vs.dcn.Cryptographer;
 import de.uulm.vs.dcn.DCNetwork;
 import de.uulm.vs.dcn.DefaultSplitCombineStrategy;
+import de.uulm.vs.dcn.KeyGraph;
+import de.uulm.vs.dcn.RoundSynchronizer;
 import de.uulm.vs.dcn.SplitCombineStrategy;
 import de.uulm.vs.dcn.Util;
 
@@ -26,6 +29,11 @@ import de.uulm.vs.dcn.Util;
  */
 public abstract class BenchmarkSpec {
   protected BiFunction<Integer, Integer, SplitCombineStrategy> scStategySupp;
+  protected IntFunction<RoundSynchronizer> synchronizerFactory =
+      BarrierSynchronizer::new;
+  protected DCNetwork.ThreadMode threadMode = DCNetwork.ThreadMode.PLATFORM;
+  protected IntFunction<DCNetwork> networkFactory = DCNetwork::new;
+  protected KeyGraph keyGraph = KeyGraph.complete();
   protected int len;
   private String outFolder;
   private String name;
@@ -49,6 +57,23 @@ public abstract class BenchmarkSpec {
     this.scStategySupp = scStrategySupp;
   }
 
+  public void setSynchronizerFactory(
+      IntFunction<RoundSynchronizer> synchronizerFactory) {
+    this.synchronizerFactory = synchronizerFactory;
+  }
+
+  public void setThreadMode(DCNetwork.ThreadMode threadMode) {
+    this.threadMode = threadMode;
+  }
+
+  public void setNetworkFactory(IntFunction<DCNetwork> networkFactory) {
+    this.networkFactory = networkFactory;
+  }
+
+  public void setKeyGraph(KeyGraph keyGraph) {
+    this.keyGraph = keyGraph;
+  }
+
   public void setOutFolder(String outFolder) {
     this.outFolder = outFolder;
   }
@@ -66,19 +91,35 @@ public abstract class BenchmarkSpec {
         "x,y\n" + Arrays.stream(data)
             .map(bmr -> bmr.x + "," + bmr.y + "," + bmr.sigma + "\n")
             .reduce(String::concat).orElse("");
+    // the time needed for agreeing on secrets in ms, excluded from the above
+    var setupFile =
+        new File(outFolder + '/' + getName() + '_' + secondaryName() + ".csv");
+    var setupStr =
+        "x,y\n" + Arrays.stream(data)
+            .map(bmr -> bmr.x + "," + bmr.setup + "," + bmr.setupSigma + "\n")
+            .reduce(String::concat).orElse("");
 
     try {
       Files.writeString(outFile.toPath(), resultStr);
+      Files.writeString(setupFile.toPath(), setupStr);
     } catch (IOException e) {
       e.printStackTrace();
     }
 
   }
 
+  /**
+   * @return The suffix of the file receiving {@link BMResult#setup}.
+   */
+  protected String secondaryName() {
+    return "setup";
+  }
+
   protected <T extends SplitCombineStrategy> double[] testWith(int n, int k,
       int msgLen, int reps) {
 
-    var measurements = new HashSet<Long>(reps);
+    var measurements = new ArrayList<Long>(reps);
+    var setups = new ArrayList<Long>(reps);
     var message = genMessage(msgLen);
     var strat = scStategySupp.apply(n, k);
     if (strat instanceof DefaultSplitCombineStrategy) {
@@ -86,25 +127,31 @@ public abstract class BenchmarkSpec {
     }
 
     for (var i = 0; i < reps; i++) {
-      measurements.add(runNetwork(n, k, message, strat));
+      var durations = runNetwork(n, k, message, strat);
+      measurements.add(durations[0]);
+      setups.add(durations[1]);
     }
 
-    return meanAndSigma(measurements);
+    // durations are measured in nanoseconds, throughput is reported in KiB/s
+    // and setup times in ms
+    var throughput = meanAndSigma(measurements, l -> (len / 1.024) / (l / 1e6));
+    var setup = meanAndSigma(setups, l -> l / 1e6);
+    return new double[] { throughput[0], throughput[1], setup[0], setup[1] };
   }
 
-  private double[] meanAndSigma(Set<Long> vals) {
-    var throughputs =
-        vals.stream().mapToDouble(l -> (len / 1.024) / l).mapToObj(l -> l)
-            .collect(Collectors.toSet());
-    var mean = throughputs.stream().mapToDouble(l -> l).sum() / vals.size();
+  protected double[] meanAndSigma(List<Long> vals, LongToDoubleFunction unit) {
+    var values =
+        vals.stream().mapToDouble(unit::applyAsDouble)
+            .mapToObj(l -> l).collect(Collectors.toList());
+    var mean = values.stream().mapToDouble(l -> l).sum() / vals.size();
 
     var sigma =
-        Math.sqrt(throughputs.stream().mapToDouble(l -> l)
+        Math.sqrt(values.stream().mapToDouble(l -> l)
             .map(x_i -> (x_i - mean) * (x_i - mean)).sum() / (vals.size() - 1));
     return new double[] { mean, sigma };
   }
 
-  private String genMessage(int msgLen) {
+  protected String genMessage(int msgLen) {
     var strbd = new StringBuilder(msgLen);
     while (msgLen-- > 0) {
       strbd.append('x');
@@ -112,53 +159,59 @@ public abstract class BenchmarkSpec {
     return strbd.toString();
   }
 
-  private long runNetwork(int n, int k, String message,
+  /**
+   * @return The time it took to run the network, excluding the setup, and the
+   *         time of the setup, in nanoseconds.
+   */
+  private long[] runNetwork(int n, int k, String message,
       SplitCombineStrategy scStrategy) {
-    var network = new DCNetwork(k);
-    var barrier = new CyclicBarrier(n);
-    var sem = new Semaphore(n);
+    var network =
+        DCNetwork.builder(n, k).engine(networkFactory)
+            .splitCombineStrategy(scStrategy)
+            .synchronizerFactory(synchronizerFactory).threadMode(threadMode)
+            .keyGraph(keyGraph).build();
     var byteBuffers =
         Collections.synchronizedMap(new HashMap<Cryptographer, byte[]>(n));
-    Cryptographer sender = null;
-
-    for (int i = 0; i < n; i++) {
-      var grapher = new Cryptographer(i + 1, scStrategy, barrier, sem);
-      if (sender == null) {
-        sender = grapher;
-      }
-      network.addCryptographer(grapher);
+    var sender = network.getCryptographers().get(0);
+
+    for (var grapher : network.getCryptographers()) {
       byteBuffers.put(grapher, new byte[0]);
       grapher.setOnMessagePartReceived(
           msg -> byteBuffers.merge(grapher, msg, Util::concat));
     }
 
-    var startTime = System.currentTimeMillis();
-    network.start(sem);
+    var startTime = System.nanoTime();
+    network.start();
 
     sender.enqueueMessage(message);
-
-    do {
-      try {
-        Thread.sleep(1);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-    } while (sender.pendingToSend());
+    sender.whenDrained().join();
 
     network.stop();
-    var endTime = System.currentTimeMillis();
-    return endTime - startTime;
+    var endTime = System.nanoTime();
+    var setup = network.getSetupNanos();
+    return new long[] { endTime - startTime - setup, setup };
   }
 
   static class BMResult {
     int x;
     double y;
     double sigma;
+    double setup;
+    double setupSigma;
 
     BMResult(int x, double y, double sigma) {
       this.x = x;
       this.y = y;
       this.sigma = sigma;
     }
+
+    /**
+     * @param rs The result of {@link BenchmarkSpec#testWith}.
+     */
+    BMResult(int x, double[] rs) {
+      this(x, rs[0], rs[1]);
+      this.setup = rs[2];
+      this.setupSigma = rs[3];
+    }
   }
 }
@@ -1,6 +1,7 @@
 package de.uulm.vs.dcn.benchmarking.specs;
 
 import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,8 +30,8 @@ public class IncreasingBPR extends BenchmarkSpec {
   @Override
   public BMResult[] execute() {
     System.out.printf(
-        "Running: IncBPR, n=%d, k=%d, bprmin=%d, bprmax=%d, msgLen=%d, delay=%d\n",
-        n, k, minBPR, maxBPR, len, DELAY);
+        "Running: IncBPR, n=%d, k=%d, bprmin=%d, bprmax=%d, msgLen=%d, delay=%d, xor=%s\n",
+        n, k, minBPR, maxBPR, len, DELAY, XOR_KERNEL.getName());
 
     var points = testPts();
     var vals = new BMResult[points.size()];
@@ -38,7 +39,7 @@ public class IncreasingBPR extends BenchmarkSpec {
     for (var bpr : points) {
       Cryptographer.BYTES_PER_ROUND = bpr;
       var rs = testWith(n, k, len, 10);
-      vals[i] = new BMResult(bpr, rs[0], rs[1]);
+      vals[i] = new BMResult(bpr, rs);
       i++;
       // System.out.println(bpr + " " + rs[0] + " " + rs[1]);
     }
@@ -0,0 +1,54 @@
+package de.uulm.vs.dcn.benchmarking.specs;
+
+import static de.uulm.vs.dcn.Cryptographer.BYTES_PER_ROUND;
+import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
+
+import de.uulm.vs.dcn.KeyGraph;
+import de.uulm.vs.dcn.Util;
+
+/**
+ * Measures a sparse {@link KeyGraph} with an increasing degree. The degree
+ * bounds the anonymity set of a sender, so the results show how much
+ * throughput a smaller anonymity set buys.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class IncreasingDegree extends BenchmarkSpec {
+  private final int n;
+  private final int k;
+  private final KeyGraph.Kind kind;
+  private int minD;
+  private int maxD;
+  private int stepD;
+
+  public IncreasingDegree(int n, int k, KeyGraph.Kind kind, int minD, int maxD,
+      int stepD) {
+    this.n = n;
+    this.k = k;
+    this.kind = kind;
+    this.minD = minD;
+    this.maxD = maxD;
+    this.stepD = stepD;
+  }
+
+  @Override
+  public BMResult[] execute() {
+    System.out.printf(
+        "Running: IncD, n=%d, k=%d, graph=%s, bpr=%d, dmin=%d, dmax=%d, dstep=%d, msgLen=%d, delay=%d, xor=%s\n",
+        n, k, kind, BYTES_PER_ROUND, minD, maxD, stepD, len, DELAY,
+        XOR_KERNEL.getName());
+    var points = Util.testPts(minD, maxD, stepD);
+    var vals = new BMResult[points.size()];
+    var i = 0;
+    for (var d : points) {
+      setKeyGraph(kind.create(d, 0));
+      var rs = testWith(n, k, len, 20);
+      vals[i] = new BMResult(d, rs);
+      i++;
+    }
+    return vals;
+  }
+
+}
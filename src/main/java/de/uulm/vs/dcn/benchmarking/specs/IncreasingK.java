@@ -2,6 +2,7 @@ package de.uulm.vs.dcn.benchmarking.specs;
 
 import static de.uulm.vs.dcn.Cryptographer.BYTES_PER_ROUND;
 import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
 
 import de.uulm.vs.dcn.Util;
 
@@ -26,14 +27,15 @@ public class IncreasingK extends BenchmarkSpec {
   @Override
   public BMResult[] execute() {
     System.out.printf(
-        "Running: IncK, n=%d, bpr=%d, kmin=%d, kmax=%d, kstep=%d, msgLen=%d, delay=%d\n",
-        n, BYTES_PER_ROUND, minK, maxK, stepK, len, DELAY);
+        "Running: IncK, n=%d, bpr=%d, kmin=%d, kmax=%d, kstep=%d, msgLen=%d, delay=%d, xor=%s\n",
+        n, BYTES_PER_ROUND, minK, maxK, stepK, len, DELAY,
+        XOR_KERNEL.getName());
     var points = Util.testPts(minK, maxK, stepK);
     var vals = new BMResult[points.size()];
     var i = 0;
     for (var k : points) {
       var rs = testWith(n, k, len, 20);
-      vals[i] = new BMResult(k, rs[0], rs[1]);
+      vals[i] = new BMResult(k, rs);
       i++;
     }
     return vals;
@@ -2,6 +2,7 @@ package de.uulm.vs.dcn.benchmarking.specs;
 
 import static de.uulm.vs.dcn.Cryptographer.BYTES_PER_ROUND;
 import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
 
 import de.uulm.vs.dcn.Util;
 
@@ -27,14 +28,15 @@ public class IncreasingN extends BenchmarkSpec {
   @Override
   public BMResult[] execute() {
     System.out.printf(
-        "Running: IncN, k=%d, bpr=%d, nmin=%d, nmax=%d, nstep=%d, msgLen=%d, delay=%d\n",
-        k, BYTES_PER_ROUND, minN, maxN, stepN, len, DELAY);
+        "Running: IncN, k=%d, bpr=%d, nmin=%d, nmax=%d, nstep=%d, msgLen=%d, delay=%d, xor=%s\n",
+        k, BYTES_PER_ROUND, minN, maxN, stepN, len, DELAY,
+        XOR_KERNEL.getName());
     var points = Util.testPts(minN, maxN, stepN);
     var vals = new BMResult[points.size()];
     var i = 0;
     for (var n : points) {
       var rs = testWith(n, k, len, 10);
-      vals[i] = new BMResult(n, rs[0], rs[1]);
+      vals[i] = new BMResult(n, rs);
       i++;
     }
     return vals;
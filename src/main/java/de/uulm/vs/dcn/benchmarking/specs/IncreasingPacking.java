@@ -0,0 +1,51 @@
+package de.uulm.vs.dcn.benchmarking.specs;
+
+import static de.uulm.vs.dcn.Cryptographer.BYTES_PER_ROUND;
+import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
+
+import de.uulm.vs.dcn.PackedShamirSplitCombine;
+import de.uulm.vs.dcn.Util;
+
+/**
+ * Measures {@link PackedShamirSplitCombine} with an increasing packing factor.
+ * Run it with several values of {@code BYTES_PER_ROUND} to compare packing
+ * against larger rounds.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class IncreasingPacking extends BenchmarkSpec {
+  private final int n;
+  private final int k;
+  private int minL;
+  private int maxL;
+  private int stepL;
+
+  public IncreasingPacking(int n, int k, int minL, int maxL, int stepL) {
+    this.n = n;
+    this.k = k;
+    this.minL = minL;
+    this.maxL = maxL;
+    this.stepL = stepL;
+  }
+
+  @Override
+  public BMResult[] execute() {
+    System.out.printf(
+        "Running: IncL, n=%d, k=%d, bpr=%d, lmin=%d, lmax=%d, lstep=%d, msgLen=%d, delay=%d, xor=%s\n",
+        n, k, BYTES_PER_ROUND, minL, maxL, stepL, len, DELAY,
+        XOR_KERNEL.getName());
+    var points = Util.testPts(minL, maxL, stepL);
+    var vals = new BMResult[points.size()];
+    var i = 0;
+    for (var l : points) {
+      setStrategySupp((n, k) -> new PackedShamirSplitCombine(n, k, l));
+      var rs = testWith(n, k, len, 20);
+      vals[i] = new BMResult(l, rs);
+      i++;
+    }
+    return vals;
+  }
+
+}
@@ -0,0 +1,88 @@
+package de.uulm.vs.dcn.benchmarking.specs;
+
+import static de.uulm.vs.dcn.Cryptographer.BYTES_PER_ROUND;
+import static de.uulm.vs.dcn.Cryptographer.DELAY;
+import static de.uulm.vs.dcn.Cryptographer.XOR_KERNEL;
+
+import de.uulm.vs.dcn.Cryptographer;
+import de.uulm.vs.dcn.DCNetwork;
+import de.uulm.vs.dcn.DefaultSplitCombineStrategy;
+import de.uulm.vs.dcn.Util;
+
+/**
+ * Measures how long the protocol of a running DCN is suspended while a member
+ * joins or leaves, for an increasing number of members. A member repeatedly
+ * joins and leaves again while another member is sending. The join latencies
+ * are reported like throughput, the leave latencies in place of the setup
+ * time, both in ms.
+ * 
+ * @author Juri Dispan
+ *
+ */
+public class MembershipLatency extends BenchmarkSpec {
+  private static final int CHANGES = 10;
+
+  private final int k;
+  private int minN;
+  private int maxN;
+  private int stepN;
+
+  public MembershipLatency(int k, int minN, int maxN, int stepN) {
+    this.k = k;
+    this.minN = minN;
+    this.maxN = maxN;
+    this.stepN = stepN;
+  }
+
+  @Override
+  public BMResult[] execute() {
+    System.out.printf(
+        "Running: Membership, k=%d, bpr=%d, nmin=%d, nmax=%d, nstep=%d, msgLen=%d, delay=%d, xor=%s\n",
+        k, BYTES_PER_ROUND, minN, maxN, stepN, len, DELAY,
+        XOR_KERNEL.getName());
+    var points = Util.testPts(minN, maxN, stepN);
+    var vals = new BMResult[points.size()];
+    var i = 0;
+    for (var n : points) {
+      vals[i] = new BMResult(n, measure(n));
+      i++;
+    }
+    return vals;
+  }
+
+  @Override
+  protected String secondaryName() {
+    return "leave";
+  }
+
+  private double[] measure(int n) {
+    var strat = scStategySupp.apply(n, k);
+    var threshold = strat instanceof DefaultSplitCombineStrategy ? 1 : k;
+    var network =
+        DCNetwork.builder(n, threshold)
+            .engine(networkFactory).splitCombineStrategy(strat)
+            .synchronizerFactory(synchronizerFactory).threadMode(threadMode)
+            .keyGraph(keyGraph).build();
+    network.start();
+    network.getCryptographers().get(0).enqueueMessage(genMessage(len));
+    try {
+      for (var i = 0; i < CHANGES; i++) {
+        var joiner = new Cryptographer(n + 1 + i, strat);
+        network.addCryptographer(joiner);
+        network.awaitRounds(1);
+        network.removeCryptographer(joiner);
+        network.awaitRounds(1);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      network.stop();
+    }
+
+    var join = meanAndSigma(network.getJoinNanos(), l -> l / 1e6);
+    var leave = meanAndSigma(network.getLeaveNanos(), l -> l / 1e6);
+    return new double[] { join[0], join[1], leave[0], leave[1] };
+  }
+
+}
@@ -0,0 +1,79 @@
+package de.uulm.vs.dcn;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@link XorAccumulator} whose buffer is a {@link MemorySegment} outside the
+ * heap. It is allocated once, from an automatic {@link Arena} which frees it
+ * once the accumulator is unreachable, and the garbage collector neither
+ * moves nor scans it. The accumulated bytes are copied out, since the members
+ * read them as a byte array.
+ * <p>
+ * This class is compiled separately because the Foreign Memory API is final
+ * in JDK 22 and a preview in JDK 21, see
+ * {@link XorAccumulator#create(int, boolean)}.
+ *
+ * @author Juri Dispan
+ *
+ */
+final class OffHeapXorAccumulator extends XorAccumulator {
+  private static final VarHandle LONGS = longs();
+
+  private final MemorySegment buffer;
+
+  OffHeapXorAccumulator(int length) {
+    super(length, true);
+    // zeroed and aligned to words, so that they can be updated atomically
+    this.buffer = Arena.ofAuto().allocate(capacity, Long.BYTES);
+  }
+
+  @Override
+  byte[] exchange(byte[] consumed) {
+    if (consumed.length != capacity) {
+      throw new IllegalArgumentException("Buffer has the wrong length.");
+    }
+    drainTo(consumed, 0, capacity);
+    return consumed;
+  }
+
+  @Override
+  void drainTo(byte[] dst, int from, int to) {
+    MemorySegment.copy(buffer, ValueLayout.JAVA_BYTE, from, dst, from,
+        to - from);
+    buffer.asSlice(from, to - from).fill((byte) 0);
+  }
+
+  @Override
+  void xorAtomic(int w, long value) {
+    LONGS.getAndBitwiseXor(buffer, (long) w, value);
+  }
+
+  @Override
+  void xorPlain(int w, long value) {
+    LONGS.set(buffer, (long) w, (long) LONGS.get(buffer, (long) w) ^ value);
+  }
+
+  /**
+   * @return A handle accessing the word of a segment at a byte offset. The
+   *         handles indexing words instead are several times slower at
+   *         {@code getAndBitwiseXor} on JDK 21.
+   */
+  private static VarHandle longs() {
+    var handle = ValueLayout.JAVA_LONG.varHandle();
+    if (handle.coordinateTypes().size() == 2) {
+      return handle;
+    }
+    // JDK 21 only takes the offset with a preview method removed in JDK 22
+    try {
+      return (VarHandle) MethodHandles.class
+          .getMethod("memorySegmentViewVarHandle", ValueLayout.class)
+          .invoke(null, ValueLayout.JAVA_LONG);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+}
@@ -2,15 +2,19 @@ package de.uulm.vs.dcn;
 
 import static de.uulm.vs.dcn.Cryptographer.CHARSET;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.Semaphore;
 
 import org.junit.Test;
 
@@ -54,31 +58,398 @@ public class DemoShamirSplitCombineTest {
     runNetwork(3, 2, message);
   }
 
+  @Test
+  public void testDcnPrefetch() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    Cryptographer.PREFETCH_ROUNDS = 4;
+    try {
+      runNetwork(4, 3, message);
+      if (DCNetwork.ThreadMode.VIRTUAL.isSupported()) {
+        var network = new DCNetwork(3);
+        network.setThreadMode(DCNetwork.ThreadMode.VIRTUAL);
+        runNetwork(network, 4, 3, message);
+      }
+    } finally {
+      Cryptographer.PREFETCH_ROUNDS = 0;
+    }
+  }
+
+  @Test
+  public void testDcnSynchronizers() throws InterruptedException {
+    for (var kind : RoundSynchronizer.Kind.values()) {
+      var network = new DCNetwork(3);
+      network.setSynchronizerFactory(kind::create);
+      runNetwork(network, 5, 3, "Hello");
+    }
+    // parking right away and never parking
+    for (var backoff : new int[][] { { 0, 0 }, { Integer.MAX_VALUE, 0 } }) {
+      var network = new DCNetwork(3);
+      network.setSynchronizerFactory(parties -> RoundSynchronizer.Kind.SPIN
+          .create(parties, backoff[0], backoff[1]));
+      runNetwork(network, 5, 3, "Hello");
+    }
+  }
+
+  @Test
+  public void testDcnVirtualThreads() throws InterruptedException {
+    assumeTrue(DCNetwork.ThreadMode.VIRTUAL.isSupported());
+    for (var kind : RoundSynchronizer.Kind.values()) {
+      var network = new DCNetwork(3);
+      network.setSynchronizerFactory(kind::create);
+      network.setThreadMode(DCNetwork.ThreadMode.VIRTUAL);
+      runNetwork(network, 50, 3, "Hello");
+    }
+  }
+
+  @Test
+  public void testDcnLockstep() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+  }
+
+  @Test
+  public void testDcnForkJoin() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    var chunkSize = ForkJoinDCNetwork.CHUNK_SIZE;
+    ForkJoinDCNetwork.CHUNK_SIZE = 8;
+    try {
+      runNetwork(new ForkJoinDCNetwork(3, 2), 5, 3, message);
+    } finally {
+      ForkJoinDCNetwork.CHUNK_SIZE = chunkSize;
+    }
+  }
+
+  @Test
+  public void testDcnAccumulate() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    Cryptographer.ACCUMULATE = true;
+    try {
+      runNetwork(5, 3, message);
+      runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+      runNetwork(new ForkJoinDCNetwork(3, 4), 5, 3, message);
+      runNetwork(new DCNetwork(3), new PackedShamirSplitCombine(5, 3, 2), 5,
+          message);
+      runNetwork(new ForkJoinDCNetwork(3, 4), new FastShamirSplitCombine(5, 3),
+          5, message);
+      runNetwork(new LockstepDCNetwork(3), new ReplicatedSplitCombine(5, 3), 5,
+          message);
+    } finally {
+      Cryptographer.ACCUMULATE = false;
+    }
+  }
+
+  @Test
+  public void testDcnOffHeap() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    try {
+      XorAccumulator.create(1, true);
+    } catch (IllegalStateException e) {
+      assumeNoException(e);
+    }
+    Cryptographer.OFF_HEAP = true;
+    try {
+      runNetwork(5, 3, message);
+      runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+      runNetwork(new ForkJoinDCNetwork(3, 4), 5, 3, message);
+      Cryptographer.PIPELINE = true;
+      runNetwork(new DCNetwork(3), 5, 3, message);
+    } finally {
+      Cryptographer.OFF_HEAP = false;
+      Cryptographer.PIPELINE = false;
+    }
+  }
+
+  @Test
+  public void testDcnPipeline() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    var chunkSize = ForkJoinDCNetwork.CHUNK_SIZE;
+    Cryptographer.PIPELINE = true;
+    ForkJoinDCNetwork.CHUNK_SIZE = 8;
+    try {
+      for (var kind : RoundSynchronizer.Kind.values()) {
+        var network = new DCNetwork(3);
+        network.setSynchronizerFactory(kind::create);
+        runNetwork(network, 5, 3, message);
+      }
+      runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+      runNetwork(new ForkJoinDCNetwork(3, 4), 5, 3, message);
+      Cryptographer.ACCUMULATE = true;
+      runNetwork(new DCNetwork(3), 5, 3, message);
+      runNetwork(new ForkJoinDCNetwork(3, 4), 5, 3, message);
+    } finally {
+      Cryptographer.PIPELINE = false;
+      Cryptographer.ACCUMULATE = false;
+      ForkJoinDCNetwork.CHUNK_SIZE = chunkSize;
+    }
+  }
+
+  @Test
+  public void testDcnPipelineOverlapsDelay() throws InterruptedException {
+    var delay = Cryptographer.DELAY;
+    Cryptographer.DELAY = 40;
+    try {
+      for (var kind : new String[] { "threaded", "lockstep" }) {
+        var sequential = timeRounds(kind, false, 10);
+        var pipelined = timeRounds(kind, true, 10);
+        assertTrue(kind + ": " + pipelined + " ms pipelined vs " + sequential
+            + " ms sequential", pipelined < sequential * 3 / 4);
+      }
+    } finally {
+      Cryptographer.DELAY = delay;
+      Cryptographer.PIPELINE = false;
+    }
+  }
+
+  private static long timeRounds(String kind, boolean pipeline, int rounds)
+      throws InterruptedException {
+    Cryptographer.PIPELINE = pipeline;
+    var network = kind.equals("lockstep") ? new LockstepDCNetwork(3)
+        : new DCNetwork(3);
+    var strategy = new FastShamirSplitCombine(4, 3);
+    for (var i = 1; i <= 4; i++) {
+      network.addCryptographer(new Cryptographer(i, strategy));
+    }
+    network.start();
+    network.awaitRounds(2);
+    var start = System.nanoTime();
+    network.awaitRounds(rounds);
+    var millis = (System.nanoTime() - start) / 1_000_000;
+    network.stop();
+    return millis;
+  }
+
+  @Test
+  public void testDcnParallelRounds() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    Cryptographer.PARALLEL_ROUNDS = 4;
+    try {
+      for (var kind : new SharedSecretGenerator.Kind[] {
+          SharedSecretGenerator.Kind.SPLITMIX,
+          SharedSecretGenerator.Kind.AES_CTR,
+          SharedSecretGenerator.Kind.CHACHA20 }) {
+        Cryptographer.SECRET_GENERATOR = kind;
+        runNetwork(5, 3, message);
+        runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+        runNetwork(new ForkJoinDCNetwork(3, 4), 5, 3, message);
+      }
+      Cryptographer.PIPELINE = true;
+      runNetwork(new DCNetwork(3), 5, 3, message);
+      runNetwork(new LockstepDCNetwork(3), 5, 3, message);
+
+      Cryptographer.SECRET_GENERATOR = SharedSecretGenerator.Kind.RANDOM;
+      try {
+        runNetwork(3, 2, message);
+        fail();
+      } catch (IllegalStateException e) {
+        // not seekable
+      }
+    } finally {
+      Cryptographer.PARALLEL_ROUNDS = 0;
+      Cryptographer.PIPELINE = false;
+      Cryptographer.SECRET_GENERATOR = SharedSecretGenerator.Kind.RANDOM;
+    }
+  }
+
+  @Test
+  public void testDcnKeyGraphs() throws InterruptedException {
+    for (var kind : KeyGraph.Kind.values()) {
+      var network = new DCNetwork(3);
+      network.setKeyGraph(kind.create(4, 42));
+      runNetwork(network, 8, 3, "Hello");
+    }
+  }
+
+  @Test
+  public void testDcnX25519() throws InterruptedException {
+    Cryptographer.KEY_EXCHANGE = KeyExchange.Kind.X25519;
+    try {
+      var network = new DCNetwork(3);
+      runNetwork(network, 6, 3, "Hello");
+      assertTrue(network.getSetupNanos() > 0);
+    } finally {
+      Cryptographer.KEY_EXCHANGE = KeyExchange.Kind.RANDOM;
+    }
+  }
+
+  @Test
+  public void testDcnBuilder() throws InterruptedException {
+    var large =
+        DCNetwork.builder(500, 1).engine(LockstepDCNetwork::new)
+            .splitCombineStrategy(new DefaultSplitCombineStrategy(500, 1))
+            .keyGraph(KeyGraph.random(4, 1)).build();
+    var members = large.getCryptographers();
+    assertEquals(500, members.size());
+    assertEquals(500, members.get(499).getNumber());
+    assertFalse(large.addCryptographer(members.get(7)));
+    runBuiltNetwork(large, 123);
+
+    var sequential =
+        DCNetwork.builder(5, 3).parallel(false)
+            .splitCombineStrategy(new FastShamirSplitCombine(5, 3)).build();
+    runBuiltNetwork(sequential, 4);
+  }
+
+  private static void runBuiltNetwork(DCNetwork network, int receiver) {
+    var message = "The quick brown fox jumps over the lazy dog";
+    var members = network.getCryptographers();
+    var received = new ByteArrayOutputStream();
+    members.get(receiver).setOnMessagePartReceived(received::writeBytes);
+    network.start();
+    members.get(0).enqueueMessage(message);
+    members.get(0).whenDrained().join();
+    network.stop();
+    assertEquals(message,
+        new String(Util.strip(received.toByteArray()), CHARSET));
+  }
+
+  @Test
+  public void testDcnFastShamir() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    runNetwork(new DCNetwork(3), new FastShamirSplitCombine(5, 3), 5, message);
+  }
+
+  @Test
+  public void testDcnMessageView() throws InterruptedException {
+    var message = "The quick brown fox jumps over the lazy dog";
+    var network = new DCNetwork(3);
+    var strat = new FastShamirSplitCombine(4, 3);
+    var received = new ByteArrayOutputStream[4];
+    var members = new Cryptographer[4];
+    for (int i = 0; i < 4; i++) {
+      var grapher = members[i] = new Cryptographer(i + 1, strat);
+      var out = received[i] = new ByteArrayOutputStream();
+      grapher.setOnMessagePartView(view -> {
+        var chunk = new byte[view.remaining()];
+        view.get(chunk);
+        out.writeBytes(chunk);
+      });
+      network.addCryptographer(grapher);
+    }
+    network.start();
+    members[2].enqueueMessage(message);
+    members[2].whenDrained().join();
+    network.stop();
+
+    for (var out : received) {
+      assertEquals(message,
+          new String(Util.strip(out.toByteArray()), CHARSET));
+    }
+  }
+
+  @Test
+  public void testDcnLifecycle() throws InterruptedException {
+    for (var network : new DCNetwork[] { new DCNetwork(2),
+        new LockstepDCNetwork(2), new ForkJoinDCNetwork(2) }) {
+      var strat = new ShamirSplitCombine(3, 2);
+      for (int i = 0; i < 3; i++) {
+        network.addCryptographer(new Cryptographer(i + 1, strat));
+      }
+      network.start();
+      network.awaitRounds(3);
+      assertTrue(network.getCompletedRounds() >= 3);
+      assertTrue(network.whenRoundCompleted(1).isDone());
+
+      var never = network.whenRoundCompleted(Long.MAX_VALUE);
+      network.stop();
+      assertTrue(network.whenTerminated().isDone());
+      assertTrue(never.isCancelled());
+      assertTrue(network.whenRoundCompleted(Long.MAX_VALUE).isCancelled());
+    }
+  }
+
+  @Test
+  public void testDcnMembership() throws IOException, InterruptedException {
+    var message =
+        Files.readString(new File("src/test/long_message.txt").toPath(),
+            CHARSET);
+    for (var network : new DCNetwork[] { new DCNetwork(3),
+        new LockstepDCNetwork(3), new ForkJoinDCNetwork(3) }) {
+      network.setKeyGraph(KeyGraph.ring(2));
+      var strat = new FastShamirSplitCombine(4, 3);
+      var members = new ArrayList<Cryptographer>();
+      for (int i = 0; i < 4; i++) {
+        members.add(new Cryptographer(i + 1, strat));
+        network.addCryptographer(members.get(i));
+      }
+      var received = new ByteArrayOutputStream();
+      members.get(1).setOnMessagePartReceived(received::writeBytes);
+      network.start();
+      members.get(0).enqueueMessage(message);
+
+      // the queued message is sent on while the members change
+      network.awaitRounds(2);
+      assertTrue(network.addCryptographer(new Cryptographer(5, strat)));
+      network.awaitRounds(2);
+      assertTrue(network.removeCryptographer(members.get(2)));
+      assertFalse(network.removeCryptographer(members.get(2)));
+      assertTrue(network.addCryptographer(new Cryptographer(6, strat)));
+      try {
+        network.addCryptographer(new Cryptographer(6, strat));
+        fail();
+      } catch (IllegalStateException e) {
+        // number already taken
+      }
+
+      members.get(0).whenDrained().join();
+      network.stop();
+      assertEquals(message,
+          new String(Util.strip(received.toByteArray()), CHARSET));
+      assertEquals(2, network.getJoinNanos().size());
+      assertEquals(1, network.getLeaveNanos().size());
+      assertEquals(5, network.getCryptographers().size());
+      // a ring keeps two secrets per member
+      for (var member : network.getCryptographers()) {
+        assertEquals(2, member.getSecretPartners().length);
+      }
+      assertEquals(0, members.get(2).getSecretPartners().length);
+    }
+  }
+
   public static void runNetwork(int n, int k, String message)
       throws InterruptedException {
+    runNetwork(new DCNetwork(k), n, k, message);
+  }
+
+  public static void runNetwork(DCNetwork network, int n, int k,
+      String message) throws InterruptedException {
+    runNetwork(network, new ShamirSplitCombine(n, k), n, message);
+  }
+
+  public static void runNetwork(DCNetwork network, SplitCombineStrategy strat,
+      int n, String message) throws InterruptedException {
     // System.out.println(n + " " + k + " " + message);
-    var network = new DCNetwork(k);
-    var barrier = new CyclicBarrier(n);
-    var sem = new Semaphore(n);
-    var strat = new ShamirSplitCombine(n, k);
     var rcvs =
         Collections.synchronizedMap(new HashMap<Cryptographer, byte[]>());
     var members = new ArrayList<Cryptographer>(n);
 
     for (int i = 0; i < n; i++) {
-      var grapher = new Cryptographer(i + 1, strat, barrier, sem);
+      var grapher = new Cryptographer(i + 1, strat);
       network.addCryptographer(grapher);
       grapher.setOnMessagePartReceived(
           msg -> rcvs.merge(grapher, msg, Util::concat));
       members.add(grapher);
     }
-    network.start(sem);
+    network.start();
 
     members.get(0).enqueueMessage(message);
 
-    while (members.get(0).pendingToSend()) {
-      Thread.sleep(100);
-    }
+    members.get(0).whenDrained().join();
 
     network.stop();
 
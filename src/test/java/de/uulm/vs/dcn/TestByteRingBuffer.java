@@ -0,0 +1,64 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestByteRingBuffer {
+  @Test
+  public void testWrapAround() {
+    var buf = new ByteRingBuffer(8, 8);
+    var out = new byte[5];
+
+    assertTrue(buf.offer(new byte[] { 1, 2, 3, 4, 5 }, 0, 5));
+    assertEquals(5, buf.drain(out, 0, 5));
+    assertTrue(buf.offer(new byte[] { 6, 7, 8, 9, 10, 11 }, 0, 6));
+    assertEquals(5, buf.drain(out, 0, 5));
+    assertArrayEquals(new byte[] { 6, 7, 8, 9, 10 }, out);
+    assertEquals(1, buf.size());
+  }
+
+  @Test
+  public void testGrowAndBound() {
+    var buf = new ByteRingBuffer(4, 128);
+    var msg = new byte[100];
+    new Random(1).nextBytes(msg);
+
+    assertTrue(buf.offer(msg, 0, msg.length));
+    assertFalse(buf.offer(msg, 0, 29));
+    var out = new byte[100];
+    assertEquals(100, buf.drain(out, 0, out.length));
+    assertArrayEquals(msg, out);
+    assertTrue(buf.isEmpty());
+  }
+
+  @Test
+  public void testBlockingPut() throws InterruptedException {
+    var buf = new ByteRingBuffer(16, 16);
+    var msg = new byte[10000];
+    new Random(2).nextBytes(msg);
+    var received = new byte[msg.length];
+
+    var consumer = new Thread(() -> {
+      var pos = 0;
+      while (pos < received.length) {
+        pos += buf.drain(received, pos, Math.min(7, received.length - pos));
+      }
+    });
+    consumer.start();
+    buf.put(msg, 0, msg.length);
+    consumer.join();
+
+    assertArrayEquals(msg, received);
+  }
+}
@@ -0,0 +1,72 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestFastShamirSplitCombine {
+  private final Random rand = new Random(7);
+
+  @Test
+  public void testField() {
+    for (var a = 0; a < 256; a++) {
+      for (var b = 1; b < 256; b++) {
+        assertEquals(a, GF256.div(GF256.mul(a, b), b));
+      }
+    }
+    assertEquals(0xc1, GF256.mul(0x57, 0x83));
+  }
+
+  @Test
+  public void testSplitCombine() {
+    var fast = new FastShamirSplitCombine(7, 4);
+    for (var len : new int[] { 0, 1, 100, 10000 }) {
+      var msg = randomBytes(len);
+      var parts = fast.split(msg);
+      assertEquals(7, parts.size());
+      assertArrayEquals(msg, fast.combine(parts.subList(0, 4)));
+      assertArrayEquals(msg, fast.combine(parts.subList(3, 7)));
+      assertArrayEquals(msg, fast.combine(parts));
+    }
+  }
+
+  @Test
+  public void testCompatibleWithCodahale() {
+    var fast = new FastShamirSplitCombine(5, 3);
+    var codahale = new ShamirSplitCombine(5, 3);
+    var msg = randomBytes(5000);
+
+    assertArrayEquals(msg, codahale.combine(fast.split(msg).subList(1, 4)));
+    assertArrayEquals(msg, fast.combine(codahale.split(msg).subList(2, 5)));
+  }
+
+  @Test
+  public void testLagrangeCache() {
+    var points = new int[] { 4, 1, 7, 9 };
+    var basis = LagrangeCache.basis(points, 3);
+    assertSame(basis, LagrangeCache.basis(new int[] { 7, 4, 1 }, 3));
+    for (var i = 0; i < 3; i++) {
+      assertEquals(GF256.lagrangeAtZero(points, 3, i), basis[points[i]]);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLagrangeCacheDuplicatePoints() {
+    LagrangeCache.basis(new int[] { 3, 5, 3 }, 3);
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,76 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestGF256Kernel {
+  private final Random rand = new Random(11);
+
+  @Test
+  public void testTableMatchesField() {
+    var src = new byte[256];
+    for (var i = 0; i < src.length; i++) {
+      src[i] = (byte) i;
+    }
+    var dst = new byte[256];
+    for (var c = 0; c < 256; c++) {
+      new TableGF256Kernel().mul(dst, 0, src, 0, src.length, c);
+      for (var i = 0; i < src.length; i++) {
+        assertEquals(GF256.mul(c, i), dst[i] & 0xff);
+      }
+    }
+  }
+
+  @Test
+  public void testVectorMatchesTable() {
+    var selected = System.getProperty(GF256Kernel.PROPERTY);
+    GF256Kernel vector;
+    try {
+      System.setProperty(GF256Kernel.PROPERTY, "vector");
+      vector = GF256Kernel.select();
+    } catch (IllegalArgumentException e) {
+      vector = null;
+    } finally {
+      if (selected == null) {
+        System.clearProperty(GF256Kernel.PROPERTY);
+      } else {
+        System.setProperty(GF256Kernel.PROPERTY, selected);
+      }
+    }
+    assumeNotNull(vector);
+
+    var table = new TableGF256Kernel();
+    for (var len : new int[] { 0, 1, 15, 16, 17, 100, 8195 }) {
+      var src = randomBytes(len + 3);
+      for (var c : new int[] { 0, 1, 2, 0x53, 0x80, 0xca, 0xff }) {
+        var expected = randomBytes(len + 5);
+        var actual = expected.clone();
+        table.mul(expected, 5, src, 3, len, c);
+        vector.mul(actual, 5, src, 3, len, c);
+        assertArrayEquals(expected, actual);
+
+        table.mulAdd(expected, 5, src, 3, len, c);
+        vector.mulAdd(actual, 5, src, 3, len, c);
+        table.mulAdd(expected, 1, src, 0, len, c + 1);
+        vector.mulAdd(actual, 1, src, 0, len, c + 1);
+        assertArrayEquals(expected, actual);
+      }
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,137 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestKeyGraph {
+  @Test
+  public void testComplete() {
+    var neighbours = KeyGraph.complete().neighbours(4);
+    assertArrayEquals(new int[] { 1, 2, 3 }, neighbours[0]);
+    assertArrayEquals(new int[] { 0, 1, 3 }, neighbours[2]);
+    checkGraph(neighbours, 3);
+  }
+
+  @Test
+  public void testRing() {
+    var neighbours = KeyGraph.ring(2).neighbours(6);
+    assertArrayEquals(new int[] { 1, 5 }, neighbours[0]);
+    assertArrayEquals(new int[] { 2, 4 }, neighbours[3]);
+    for (var n = 3; n <= 20; n++) {
+      for (var d = 2; d < n - 1; d += 2) {
+        checkGraph(KeyGraph.ring(d).neighbours(n), d);
+      }
+    }
+  }
+
+  @Test
+  public void testRandom() {
+    for (var n = 3; n <= 40; n++) {
+      for (var d = 2; d < n - 1; d += 2) {
+        var neighbours = KeyGraph.random(d, n).neighbours(n);
+        if (3 * d <= 2 * n) {
+          checkGraph(neighbours, d);
+        } else {
+          // the cycles may not be edge-disjoint
+          checkGraph(neighbours, d - 4, d);
+        }
+      }
+    }
+    // all members have to agree on the same graph
+    assertArrayEquals(KeyGraph.random(4, 7).neighbours(20),
+        KeyGraph.random(4, 7).neighbours(20));
+    checkGraph(KeyGraph.random(6, 1).neighbours(5), 4);
+    checkGraph(KeyGraph.random(16, 3).neighbours(2000), 16);
+  }
+
+  @Test
+  public void testRandomIsNotCirculant() {
+    // a circulant graph has the same distances between all neighbours
+    var neighbours = KeyGraph.random(4, 5).neighbours(100);
+    var distances = new HashSet<Integer>();
+    for (var i = 0; i < neighbours.length; i++) {
+      for (var j : neighbours[i]) {
+        distances.add(Math.floorMod(j - i, neighbours.length));
+      }
+    }
+    assertTrue(distances.size() > 20);
+  }
+
+  @Test
+  public void testExpander() {
+    for (var n = 3; n <= 40; n++) {
+      var neighbours = KeyGraph.expander(4, n).neighbours(n);
+      checkGraph(neighbours, neighbours[0].length);
+    }
+    checkGraph(KeyGraph.expander(8, 1).neighbours(1000), 8);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExpanderDegree() {
+    KeyGraph.expander(2, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOddDegree() {
+    KeyGraph.ring(3);
+  }
+
+  @Test
+  public void testParse() {
+    assertEquals(KeyGraph.Kind.EXPANDER, KeyGraph.Kind.parse(" expander"));
+  }
+
+  /**
+   * Checks that the graph is undirected, d-regular and connected.
+   */
+  private static void checkGraph(int[][] neighbours, int degree) {
+    checkGraph(neighbours, degree, degree);
+  }
+
+  /**
+   * Checks that the graph is undirected and connected, with degrees in the
+   * specified range.
+   */
+  private static void checkGraph(int[][] neighbours, int minDegree,
+      int maxDegree) {
+    var n = neighbours.length;
+    for (var i = 0; i < n; i++) {
+      assertTrue(neighbours[i].length >= minDegree);
+      assertTrue(neighbours[i].length <= maxDegree);
+      for (var j : neighbours[i]) {
+        assertTrue(j != i);
+        var found = false;
+        for (var back : neighbours[j]) {
+          found |= back == i;
+        }
+        assertTrue(found);
+      }
+    }
+    var reached = new boolean[n];
+    var queue = new ArrayDeque<Integer>();
+    reached[0] = true;
+    queue.add(0);
+    var count = 1;
+    while (!queue.isEmpty()) {
+      for (var j : neighbours[queue.poll()]) {
+        if (!reached[j]) {
+          reached[j] = true;
+          count++;
+          queue.add(j);
+        }
+      }
+    }
+    assertEquals(n, count);
+  }
+}
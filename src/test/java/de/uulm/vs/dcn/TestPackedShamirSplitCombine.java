@@ -0,0 +1,87 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestPackedShamirSplitCombine {
+  private final Random rand = new Random(5);
+
+  @Test
+  public void testSplitCombine() {
+    for (var l = 1; l <= 4; l++) {
+      var strat = new PackedShamirSplitCombine(6, 4, l);
+      for (var len : new int[] { 1, 7, 100, 1001 }) {
+        var msg = randomBytes(len);
+        var partLength = strat.partLength(len);
+        assertEquals((len + l - 1) / l, partLength);
+
+        var shares = new byte[6][partLength];
+        strat.split(msg, shares);
+        var out = new byte[len];
+        strat.combine(new int[] { 6, 2, 5, 3 },
+            new byte[][] { shares[5], shares[1], shares[4], shares[2] }, 4,
+            out);
+        assertArrayEquals(msg, out);
+
+        var combined = strat.combine(strat.split(msg).subList(2, 6));
+        assertArrayEquals(msg, Arrays.copyOf(combined, len));
+      }
+    }
+  }
+
+  @Test
+  public void testLinear() {
+    var strat = new PackedShamirSplitCombine(5, 3, 2);
+    var a = randomBytes(64);
+    var b = randomBytes(64);
+    var sharesA = new byte[5][32];
+    var sharesB = new byte[5][32];
+    strat.split(a, sharesA);
+    strat.split(b, sharesB);
+    for (var i = 0; i < 5; i++) {
+      new ScalarXorKernel().xor(sharesA[i], sharesB[i], 32);
+    }
+
+    var out = new byte[64];
+    strat.combine(new int[] { 1, 3, 4 },
+        new byte[][] { sharesA[0], sharesA[2], sharesA[3] }, 3, out);
+    new ScalarXorKernel().xor(a, b, 64);
+    assertArrayEquals(a, out);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPackingFactor() {
+    new PackedShamirSplitCombine(5, 3, 4);
+  }
+
+  @Test
+  public void testDcn() throws Exception {
+    var message = "Packing several bytes into each polynomial.";
+    DemoShamirSplitCombineTest.runNetwork(new DCNetwork(4),
+        new PackedShamirSplitCombine(6, 4, 3), 6, message);
+    var chunkSize = ForkJoinDCNetwork.CHUNK_SIZE;
+    ForkJoinDCNetwork.CHUNK_SIZE = 5;
+    try {
+      DemoShamirSplitCombineTest.runNetwork(new ForkJoinDCNetwork(4, 2),
+          new PackedShamirSplitCombine(6, 4, 3), 6, message);
+    } finally {
+      ForkJoinDCNetwork.CHUNK_SIZE = chunkSize;
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,56 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestReplicatedSplitCombine {
+  private final Random rand = new Random(9);
+
+  @Test
+  public void testSplitCombine() {
+    for (var k = 1; k <= 5; k++) {
+      var strat = new ReplicatedSplitCombine(5, k);
+      var msg = randomBytes(100);
+      var parts = strat.split(msg);
+      assertEquals(5, parts.size());
+      for (var from = 0; from + k <= 5; from++) {
+        assertArrayEquals(msg, strat.combine(parts.subList(from, from + k)));
+      }
+    }
+  }
+
+  @Test
+  public void testPartLength() {
+    // every member holds C(4, 2) of the C(5, 2) shares
+    assertEquals(6 * 10, new ReplicatedSplitCombine(5, 3).partLength(10));
+    assertEquals(10, new ReplicatedSplitCombine(5, 1).partLength(10));
+    assertEquals(10, new ReplicatedSplitCombine(5, 5).partLength(10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooFewParts() {
+    var strat = new ReplicatedSplitCombine(4, 3);
+    strat.combine(strat.split(randomBytes(10)).subList(0, 2));
+  }
+
+  @Test
+  public void testDcn() throws Exception {
+    DemoShamirSplitCombineTest.runNetwork(new DCNetwork(3),
+        new ReplicatedSplitCombine(5, 3), 5, "Only XOR, no field arithmetic.");
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,91 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestRobustShamirSplitCombine {
+  private final Random rand = new Random(13);
+  private final int[] points = new int[] { 2, 7, 4, 1, 6, 3, 5 };
+
+  @Test
+  public void testConsistent() {
+    var strat = new RobustShamirSplitCombine(7, 3);
+    var msg = randomBytes(500);
+    var out = new byte[msg.length];
+    assertTrue(strat.combineChecked(points, sharesAt(strat, msg), 7, out));
+    assertArrayEquals(msg, out);
+    assertEquals(0, strat.getCorrectedCount());
+  }
+
+  @Test
+  public void testCorrectsErrors() {
+    var strat = new RobustShamirSplitCombine(7, 3);
+    var msg = randomBytes(500);
+    var shares = sharesAt(strat, msg);
+    // one part used for interpolation, one for the check
+    corrupt(shares[1]);
+    corrupt(shares[3]);
+
+    var out = new byte[msg.length];
+    assertTrue(strat.combineChecked(points, shares, 7, out));
+    assertArrayEquals(msg, out);
+    assertEquals(1, strat.getCorrectedCount());
+  }
+
+  @Test
+  public void testTooManyErrors() {
+    var strat = new RobustShamirSplitCombine(7, 3);
+    var msg = randomBytes(500);
+    var shares = sharesAt(strat, msg);
+    corrupt(shares[0]);
+    corrupt(shares[2]);
+    corrupt(shares[4]);
+
+    assertFalse(strat.combineChecked(points, shares, 7, new byte[500]));
+    assertEquals(1, strat.getFailedCount());
+  }
+
+  @Test
+  public void testDcnWithSpares() throws Exception {
+    var network = new DCNetwork(3);
+    network.setSpareSharingPartners(2);
+    DemoShamirSplitCombineTest.runNetwork(network,
+        new RobustShamirSplitCombine(6, 3), 6, "Spare parts for robustness.");
+  }
+
+  /**
+   * @return The parts of the message, ordered like {@link #points}.
+   */
+  private byte[][] sharesAt(SplitCombineStrategy strat, byte[] msg) {
+    var byPoint = new byte[7][msg.length];
+    strat.split(msg, byPoint);
+    var shares = new byte[points.length][];
+    for (var i = 0; i < points.length; i++) {
+      shares[i] = byPoint[points[i] - 1];
+    }
+    return shares;
+  }
+
+  private void corrupt(byte[] share) {
+    for (var i = 0; i < share.length; i += 3) {
+      share[i] ^= 1 + rand.nextInt(255);
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,109 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestSharedSecretGenerator {
+  @Test
+  public void testPartnersAgree() {
+    for (var kind : SharedSecretGenerator.Kind.values()) {
+      var seed = SharedSecretGenerator.expandSeed(1234);
+      var gen1 = kind.create(seed);
+      var gen2 = kind.create(seed);
+
+      for (var len : new int[] { 32, 5, 8192 }) {
+        var bytes1 = new byte[len + 3];
+        var bytes2 = new byte[len];
+        gen1.nextBytes(bytes1, 3, len);
+        gen2.nextBytes(bytes2);
+
+        assertArrayEquals(kind.name(), bytes2,
+            Arrays.copyOfRange(bytes1, 3, len + 3));
+        assertFalse(kind.name(), Arrays.equals(new byte[len], bytes2));
+      }
+    }
+  }
+
+  @Test
+  public void testRoundBytes() {
+    for (var kind : SharedSecretGenerator.Kind.values()) {
+      var seed = SharedSecretGenerator.expandSeed(1234);
+      var gen1 = kind.create(seed);
+      var gen2 = kind.create(seed);
+      if (!gen1.isSeekable()) {
+        continue;
+      }
+
+      // the order of the rounds and the stream do not matter
+      var round7 = new byte[100];
+      var round3 = new byte[100];
+      gen1.roundBytes(7, round7, 0, 100);
+      gen1.roundBytes(3, round3, 0, 100);
+      gen2.nextBytes(new byte[50]);
+      var bytes = new byte[103];
+      gen2.roundBytes(3, bytes, 3, 100);
+      assertArrayEquals(kind.name(), round3,
+          Arrays.copyOfRange(bytes, 3, 103));
+      gen2.roundBytes(7, bytes, 0, 100);
+      assertArrayEquals(kind.name(), round7, Arrays.copyOf(bytes, 100));
+
+      assertFalse(kind.name(), Arrays.equals(round3, round7));
+      assertFalse(kind.name(), Arrays.equals(new byte[100], round3));
+    }
+  }
+
+  @Test
+  public void testSameRoundBackToBack() {
+    for (var kind : SharedSecretGenerator.Kind.values()) {
+      var seed = SharedSecretGenerator.expandSeed(1234);
+      var gen1 = kind.create(seed);
+      var gen2 = kind.create(seed);
+      var other = kind.create(SharedSecretGenerator.expandSeed(99));
+      if (!gen1.isSeekable()) {
+        continue;
+      }
+
+      // as when both partners compute a round on the same thread
+      var expected = new byte[100];
+      gen1.roundBytes(5, expected, 0, 100);
+      for (var gen : new SharedSecretGenerator[] { gen2, gen1, other, gen2 }) {
+        var bytes = new byte[100];
+        gen.roundBytes(5, bytes, 0, 100);
+        if (gen == other) {
+          assertFalse(kind.name(), Arrays.equals(expected, bytes));
+        } else {
+          assertArrayEquals(kind.name(), expected, bytes);
+        }
+      }
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testRandomNotSeekable() {
+    var gen = SharedSecretGenerator.Kind.RANDOM
+        .create(SharedSecretGenerator.expandSeed(1));
+    assertFalse(gen.isSeekable());
+    gen.roundBytes(0, new byte[8], 0, 8);
+  }
+
+  @Test
+  public void testDifferentSeeds() {
+    for (var kind : SharedSecretGenerator.Kind.values()) {
+      var bytes1 = new byte[64];
+      var bytes2 = new byte[64];
+      kind.create(SharedSecretGenerator.expandSeed(1)).nextBytes(bytes1);
+      kind.create(SharedSecretGenerator.expandSeed(2)).nextBytes(bytes2);
+
+      assertFalse(kind.name(), Arrays.equals(bytes1, bytes2));
+    }
+  }
+}
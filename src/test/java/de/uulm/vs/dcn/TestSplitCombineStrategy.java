@@ -0,0 +1,91 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestSplitCombineStrategy {
+  private final Random rand = new Random(3);
+
+  private final SplitCombineStrategy[] strategies =
+      new SplitCombineStrategy[] { new DefaultSplitCombineStrategy(5, 1),
+          new ShamirSplitCombine(5, 3), new FastShamirSplitCombine(5, 3),
+          new PackedShamirSplitCombine(5, 3, 2),
+          new ReplicatedSplitCombine(5, 3) };
+
+  @Test
+  public void testArrays() {
+    var msg = randomBytes(1000);
+    for (var strategy : strategies) {
+      var shares = new byte[5][strategy.partLength(msg.length) + 10];
+      strategy.split(msg, shares);
+
+      var out = new byte[msg.length];
+      strategy.combine(new int[] { 5, 2, 3 },
+          new byte[][] { shares[4], shares[1], shares[2] }, 3, out);
+      assertArrayEquals(msg, out);
+    }
+  }
+
+  @Test
+  public void testOnePartAtATime() {
+    var msg = randomBytes(1000);
+    for (var strategy : strategies) {
+      var shares = new byte[5][];
+      var part = new byte[strategy.partLength(msg.length)];
+      strategy.split(msg, part, (share, i) -> {
+        assertEquals(null, shares[i]);
+        shares[i] = share.clone();
+        // the part may be modified by the consumer
+        share[0]++;
+      });
+
+      var out = new byte[msg.length];
+      strategy.combine(new int[] { 5, 2, 3 },
+          new byte[][] { shares[4], shares[1], shares[2] }, 3, out);
+      assertArrayEquals(msg, out);
+      strategy.combine(new int[] { 1, 4, 2 },
+          new byte[][] { shares[0], shares[3], shares[1] }, 3, out);
+      assertArrayEquals(msg, out);
+    }
+  }
+
+  @Test
+  public void testByteBuffers() {
+    var msg = randomBytes(1000);
+    for (var strategy : strategies) {
+      var shares = new ByteBuffer[5];
+      var capacity = strategy.partLength(msg.length) + 100;
+      for (var i = 0; i < shares.length; i++) {
+        shares[i] = i % 2 == 0 ? ByteBuffer.allocate(capacity)
+            : ByteBuffer.allocateDirect(capacity);
+        shares[i].position(100);
+      }
+      strategy.split(ByteBuffer.wrap(msg), shares);
+
+      var parts = new ByteBuffer[3];
+      for (var i = 0; i < parts.length; i++) {
+        parts[i] = shares[i + 2].flip().position(100);
+      }
+      var out = ByteBuffer.allocate(msg.length);
+      strategy.combine(new int[] { 3, 4, 5 }, parts, 3, out);
+      assertEquals(0, out.remaining());
+      assertArrayEquals(msg, out.array());
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
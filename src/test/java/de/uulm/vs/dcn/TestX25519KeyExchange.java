@@ -0,0 +1,61 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestX25519KeyExchange {
+  @Test
+  public void testHkdf() throws Exception {
+    // RFC 5869, test case 1
+    var ikm = new byte[22];
+    Arrays.fill(ikm, (byte) 0x0b);
+    var salt = new byte[13];
+    for (var i = 0; i < salt.length; i++) {
+      salt[i] = (byte) i;
+    }
+    var info = new byte[10];
+    for (var i = 0; i < info.length; i++) {
+      info[i] = (byte) (0xf0 + i);
+    }
+    var okm =
+        X25519KeyExchange.hkdf(Mac.getInstance("HmacSHA256"), salt, ikm, info,
+            42);
+    assertEquals(
+        "3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf"
+            + "34007208d5b887185865",
+        hex(okm));
+  }
+
+  @Test
+  public void testAgree() {
+    var exchange = new X25519KeyExchange();
+    var c1 = new Cryptographer(1, new DefaultSplitCombineStrategy(3, 1));
+    var c2 = new Cryptographer(2, new DefaultSplitCombineStrategy(3, 1));
+    var c3 = new Cryptographer(3, new DefaultSplitCombineStrategy(3, 1));
+    var seed = exchange.agree(c1, c2);
+    assertEquals(SharedSecretGenerator.SEED_LENGTH, seed.length);
+    assertArrayEquals(seed, exchange.agree(c2, c1));
+    assertFalse(Arrays.equals(seed, exchange.agree(c1, c3)));
+    assertFalse(Arrays.equals(seed, exchange.agree(c2, c3)));
+  }
+
+  private static String hex(byte[] bytes) {
+    var sb = new StringBuilder();
+    for (var b : bytes) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
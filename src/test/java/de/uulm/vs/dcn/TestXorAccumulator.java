@@ -0,0 +1,122 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestXorAccumulator {
+  private final Random rand = new Random(23);
+
+  @Test
+  public void testConcurrentUnalignedRanges() throws Exception {
+    var length = 1003;
+    var threads = 4;
+    var rangesPerThread = 500;
+    var srcs = new byte[threads][length];
+    var ranges = new int[threads][rangesPerThread][2];
+    var expected = new byte[length + 5];
+    for (var t = 0; t < threads; t++) {
+      rand.nextBytes(srcs[t]);
+      for (var range : ranges[t]) {
+        // short ranges within a word as well as ranges spanning many
+        var from = rand.nextInt(length);
+        var to = from + rand.nextInt(Math.min(length - from, 20) + 1);
+        if (rand.nextBoolean()) {
+          to = from + rand.nextInt(length - from + 1);
+        }
+        range[0] = from;
+        range[1] = to;
+        for (var i = from; i < to; i++) {
+          expected[i] ^= srcs[t][i];
+        }
+      }
+    }
+
+    for (var accumulator : accumulators(length)) {
+      runConcurrently(accumulator, srcs, ranges);
+      // the buffer is rounded up to whole words, which must stay 0
+      var actual = accumulator.exchange(accumulator.newBuffer());
+      assertArrayEquals(Arrays.copyOf(expected, actual.length), actual);
+    }
+  }
+
+  private static void runConcurrently(XorAccumulator accumulator,
+      byte[][] srcs, int[][][] ranges) throws InterruptedException {
+    var threads = srcs.length;
+    var start = new CyclicBarrier(threads);
+    var workers = new ArrayList<Thread>();
+    var failures = new ArrayList<Throwable>();
+    for (var t = 0; t < threads; t++) {
+      var src = srcs[t];
+      var own = ranges[t];
+      var worker = new Thread(() -> {
+        try {
+          start.await();
+          for (var range : own) {
+            accumulator.xor(src, range[0], range[1]);
+          }
+        } catch (Exception e) {
+          synchronized (failures) {
+            failures.add(e);
+          }
+        }
+      });
+      workers.add(worker);
+      worker.start();
+    }
+    for (var worker : workers) {
+      worker.join();
+    }
+    assertArrayEquals(new Throwable[0], failures.toArray());
+  }
+
+  @Test
+  public void testDrainAndExchangeClear() {
+    var length = 21;
+    var src = new byte[length];
+    rand.nextBytes(src);
+    for (var accumulator : accumulators(length)) {
+      accumulator.xor(src, 3, 17);
+
+      var drained = new byte[length];
+      accumulator.drainTo(drained, 0, 10);
+      accumulator.drainTo(drained, 10, length);
+      var expected = new byte[length];
+      System.arraycopy(src, 3, expected, 3, 14);
+      assertArrayEquals(expected, drained);
+
+      var spare = accumulator.newBuffer();
+      Arrays.fill(spare, (byte) 1);
+      var zeros = new byte[spare.length];
+      var returned = accumulator.exchange(spare);
+      assertArrayEquals(zeros, returned);
+      // the spare buffer was cleared before being accumulated into
+      assertArrayEquals(zeros, accumulator.exchange(returned));
+    }
+  }
+
+  /**
+   * @return A heap accumulator and, if the JVM supports it, an off-heap one.
+   */
+  private static List<XorAccumulator> accumulators(int length) {
+    var accumulators = new ArrayList<XorAccumulator>();
+    accumulators.add(XorAccumulator.create(length, false));
+    try {
+      accumulators.add(XorAccumulator.create(length, true));
+    } catch (IllegalStateException e) {
+      // not available on this JVM
+    }
+    return accumulators;
+  }
+}
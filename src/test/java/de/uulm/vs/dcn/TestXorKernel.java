@@ -0,0 +1,71 @@
+package de.uulm.vs.dcn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Juri Dispan
+ *
+ */
+public class TestXorKernel {
+  private final Random rand = new Random(42);
+
+  @Test
+  public void testXorMatchesScalar() {
+    for (var len : new int[] { 0, 1, 7, 8, 9, 100, 8195 }) {
+      var src = randomBytes(len + 3);
+      var expected = randomBytes(len + 5);
+      var actual = expected.clone();
+
+      new ScalarXorKernel().xor(expected, 5, src, 3, len);
+      new WordXorKernel().xor(actual, 5, src, 3, len);
+      assertArrayEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testFoldMatchesScalar() {
+    var len = 10000;
+    var srcs =
+        new byte[][] { randomBytes(len), null, randomBytes(len),
+            randomBytes(len) };
+    var expected = randomBytes(len);
+    var actual = randomBytes(len);
+
+    new ScalarXorKernel().fold(expected, srcs, len);
+    new WordXorKernel().fold(actual, srcs, len);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void testSelectByProperty() {
+    var selected = System.getProperty(XorKernel.PROPERTY);
+    try {
+      System.setProperty(XorKernel.PROPERTY, ScalarXorKernel.NAME);
+      assertEquals(ScalarXorKernel.NAME, XorKernel.select().getName());
+      System.setProperty(XorKernel.PROPERTY, WordXorKernel.NAME);
+      assertEquals(WordXorKernel.NAME, XorKernel.select().getName());
+      // chosen by the JDK otherwise
+      System.clearProperty(XorKernel.PROPERTY);
+      assertEquals(Runtime.version().feature() >= 17 ? WordXorKernel.NAME
+          : ScalarXorKernel.NAME, XorKernel.select().getName());
+    } finally {
+      if (selected == null) {
+        System.clearProperty(XorKernel.PROPERTY);
+      } else {
+        System.setProperty(XorKernel.PROPERTY, selected);
+      }
+    }
+  }
+
+  private byte[] randomBytes(int len) {
+    var bytes = new byte[len];
+    rand.nextBytes(bytes);
+    return bytes;
+  }
+}
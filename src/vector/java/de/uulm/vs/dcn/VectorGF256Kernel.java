@@ -0,0 +1,115 @@
+package de.uulm.vs.dcn;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link GF256Kernel} multiplying a whole vector of bytes at once with the
+ * incubating Vector API. The product of a byte and the constant is the XOR of
+ * the products of its low and its high nibble, which are looked up in two
+ * tables of 16 entries. Each lookup is a single shuffle of the vector holding
+ * the table, with the nibbles as indices.
+ *
+ * <p>
+ * This class is compiled separately because it needs JDK 16 or later. It is
+ * only available if the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, see
+ * {@link GF256Kernel#select()}.
+ *
+ * @author Juri Dispan
+ *
+ */
+public class VectorGF256Kernel implements GF256Kernel {
+  static final String NAME = "vector";
+
+  private static final VectorSpecies<Byte> SPECIES =
+      ByteVector.SPECIES_PREFERRED;
+
+  /**
+   * {@code c * x} for every low nibble {@code x}, at index
+   * {@code c * SPECIES.length() + x}. Rows are as long as a vector, so that
+   * they can be loaded as one.
+   */
+  private static final byte[] LOW = new byte[256 * SPECIES.length()];
+
+  /**
+   * {@code c * (x << 4)} for every high nibble {@code x}, laid out like
+   * {@link VectorGF256Kernel#LOW}.
+   */
+  private static final byte[] HIGH = new byte[256 * SPECIES.length()];
+
+  static {
+    for (var c = 0; c < 256; c++) {
+      for (var x = 0; x < Math.min(16, SPECIES.length()); x++) {
+        LOW[c * SPECIES.length() + x] = (byte) GF256.mul(c, x);
+        HIGH[c * SPECIES.length() + x] = (byte) GF256.mul(c, x << 4);
+      }
+    }
+  }
+
+  private final TableGF256Kernel tail = new TableGF256Kernel();
+
+  /**
+   * @throws UnsupportedOperationException If the vectors of this machine are
+   *                                       shorter than the tables.
+   */
+  public VectorGF256Kernel() {
+    if (SPECIES.length() < 16) {
+      throw new UnsupportedOperationException(
+          "Vectors of " + SPECIES.length() + " bytes can't hold the tables.");
+    }
+  }
+
+  @Override
+  public void mul(byte[] dst, int dstOff, byte[] src, int srcOff, int len,
+      int c) {
+    c &= 0xff;
+    var low = ByteVector.fromArray(SPECIES, LOW, c * SPECIES.length());
+    var high = ByteVector.fromArray(SPECIES, HIGH, c * SPECIES.length());
+    var bound = SPECIES.loopBound(len);
+    var i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      var s = ByteVector.fromArray(SPECIES, src, srcOff + i);
+      mul(s, low, high).intoArray(dst, dstOff + i);
+    }
+    tail.mul(dst, dstOff + i, src, srcOff + i, len - i, c);
+  }
+
+  @Override
+  public void mulAdd(byte[] dst, int dstOff, byte[] src, int srcOff, int len,
+      int c) {
+    c &= 0xff;
+    if (c == 0) {
+      return;
+    }
+    var low = ByteVector.fromArray(SPECIES, LOW, c * SPECIES.length());
+    var high = ByteVector.fromArray(SPECIES, HIGH, c * SPECIES.length());
+    var bound = SPECIES.loopBound(len);
+    var i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      var s = ByteVector.fromArray(SPECIES, src, srcOff + i);
+      var d = ByteVector.fromArray(SPECIES, dst, dstOff + i);
+      d.lanewise(VectorOperators.XOR, mul(s, low, high)).intoArray(dst,
+          dstOff + i);
+    }
+    tail.mulAdd(dst, dstOff + i, src, srcOff + i, len - i, c);
+  }
+
+  /**
+   * Multiplies every byte of {@code v} by the constant whose nibble products
+   * are held by {@code low} and {@code high}.
+   */
+  private static ByteVector mul(ByteVector v, ByteVector low,
+      ByteVector high) {
+    var lowNibbles = v.and((byte) 0x0f);
+    var highNibbles = v.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0f);
+    return low.rearrange(lowNibbles.toShuffle()).lanewise(VectorOperators.XOR,
+        high.rearrange(highNibbles.toShuffle()));
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}